@@ -0,0 +1,104 @@
+package szp.rafael.cct.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import szp.rafael.cct.utils.GeoPoint;
+import szp.rafael.cct.utils.GeoUtils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distâncias em lote até um ponto de referência, com e sem a Vector API.
+ *
+ * Os métodos *Vector rodam em um fork com {@code --add-modules jdk.incubator.vector} e os *Scalar em um fork
+ * sem o módulo, ou seja, no laço escalar de {@link GeoUtils}: o mesmo código, só muda a JVM. Os kernels vetoriais
+ * só existem no build com o profile {@code vector} ({@code mvn -Pbenchmarks,vector ...}); sem ele os *Vector também
+ * medem o laço escalar.
+ * {@code haversine} recebe latitude/longitude em graus; {@code chord} recebe os vetores unitários já calculados
+ * (como no {@link szp.rafael.cct.stream.state.ClientHistoryBuffer}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GeoBatchBenchmark {
+
+    private static final String VECTOR_MODULE = "--add-modules=jdk.incubator.vector";
+
+    @Param({"16", "128", "1024"})
+    public int historySize;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private double[] out;
+    private GeoPoint reference;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        latitudes = new double[historySize];
+        longitudes = new double[historySize];
+        xs = new double[historySize];
+        ys = new double[historySize];
+        zs = new double[historySize];
+        out = new double[historySize];
+        reference = GeoPoint.of(-23.5505, -46.6333);
+        for (int i = 0; i < historySize; i++) {
+            latitudes[i] = reference.getLatitude() + (random.nextDouble() - 0.5d);
+            longitudes[i] = reference.getLongitude() + (random.nextDouble() - 0.5d);
+            GeoPoint point = GeoPoint.of(latitudes[i], longitudes[i]);
+            xs[i] = point.x();
+            ys[i] = point.y();
+            zs[i] = point.z();
+        }
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double[] haversineScalar() {
+        return haversine();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = VECTOR_MODULE)
+    public double[] haversineVector() {
+        return haversine();
+    }
+
+    @Benchmark
+    @Fork(1)
+    public double[] chordScalar() {
+        return chord();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = VECTOR_MODULE)
+    public double[] chordVector() {
+        return chord();
+    }
+
+    private double[] haversine() {
+        GeoUtils.distancesKm(latitudes, longitudes, historySize, reference.getLatitude(), reference.getLongitude(), out);
+        return out;
+    }
+
+    private double[] chord() {
+        GeoUtils.chordsKm(xs, ys, zs, 0, historySize, reference.x(), reference.y(), reference.z(), out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,160 @@
+package szp.rafael.cct.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor.EvaluationType;
+import szp.rafael.cct.stream.processor.EvaluationContext;
+import szp.rafael.cct.stream.processor.GeoWindowCheck;
+import szp.rafael.cct.stream.processor.HighFrequencyWindowCheck;
+import szp.rafael.cct.stream.processor.MultipleIPWindowCheck;
+import szp.rafael.cct.stream.processor.PatternWindowCheck;
+import szp.rafael.cct.stream.processor.VelocityWindowCheck;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.utils.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de avaliação de cada regra em função do tamanho do histórico da janela.
+ *
+ * O histórico é montado para não disparar nenhuma saída antecipada (IPs públicos, mesmo local a menos de
+ * um metro, valores que não formam padrão nem excedem a velocidade), ou seja, mede o pior caso: a varredura
+ * completa. A única regra que dispara é a de alta frequência, a partir de 10 transações na janela; ela conta
+ * a janela inteira antes de comparar, então também mede a varredura. {@code source} escolhe de onde a regra lê o histórico:
+ * HISTORY (conjunto de transações, como na WindowStore), HISTORY_BUFFER ({@link ClientHistoryBuffer})
+ * ROLLING_AGGREGATE (agregado incremental; só muda velocidade e alta frequência) ou DECAYING_COUNTERS
+ * (contadores decaídos de {@link DecayingCounters}; idem, com custo constante em qualquer tamanho de histórico).
+ *
+ * Rodar com {@code -prof gc} para a taxa de alocação (já é o default de jmh.args no profile benchmarks).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBenchmark {
+
+    public enum HistorySource { HISTORY, HISTORY_BUFFER, ROLLING_AGGREGATE, DECAYING_COUNTERS }
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int historySize;
+
+    @Param({"HISTORY", "HISTORY_BUFFER", "ROLLING_AGGREGATE", "DECAYING_COUNTERS"})
+    public HistorySource source;
+
+    private final GeoWindowCheck geo = new GeoWindowCheck("bench");
+    private final MultipleIPWindowCheck ip = new MultipleIPWindowCheck("bench");
+    private final PatternWindowCheck pattern = new PatternWindowCheck("bench");
+    private final VelocityWindowCheck velocity = new VelocityWindowCheck("bench");
+    private final HighFrequencyWindowCheck highFrequency = new HighFrequencyWindowCheck("bench");
+
+    private ProcessedClientCCTransaction history;
+    private ClientHistoryBuffer historyBuffer;
+    private RollingWindowAggregate rollingAggregate;
+    private DecayingCounters decayingCounters;
+    private CreditCardTransaction current;
+    private long windowStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        CardDetails cardDetails = new CardDetails("1234-5678-9012-3456", "bench", "visa", "12/30");
+        IpData ipData = new IpData("200.241.235.123");
+        long now = 1761937000000L;
+        long windowMs = AbstractWindowProcessor.WINDOW_SIZE.toMillis();
+        windowStart = now - windowMs;
+
+        // valor pequeno na atual e nenhum valor grande no histórico: a regra de padrão varre tudo sem disparar;
+        // a soma do histórico fica abaixo de R$ 20.000 em 30 min, sem disparar a regra de velocidade
+        current = transaction("current", now, 200, random, cardDetails, ipData);
+        int maxAmountInCents = Math.max(101, Math.min(50000, 2_000_000 / Math.max(historySize, 1)));
+
+        LinkedHashSet<CreditCardTransaction> lastTransactions = new LinkedHashSet<>();
+        lastTransactions.add(current);
+        historyBuffer = new ClientHistoryBuffer(Math.max(historySize, 1));
+        rollingAggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+        decayingCounters = DecayingCounters.of();
+        for (int i = 0; i < historySize; i++) {
+            long timestamp = windowStart + 1 + (windowMs - 2) * i / historySize;
+            long amountInCents = 100 + random.nextInt(maxAmountInCents - 100);
+            CreditCardTransaction previous = transaction("tx-" + i, timestamp, amountInCents, random, cardDetails, ipData);
+            lastTransactions.add(previous);
+            historyBuffer.add(previous);
+            rollingAggregate.add(timestamp, FixedPoint.toMinorUnits(previous.getAmount()), previous.getGeolocation().getPoint());
+            decayingCounters.add(timestamp, FixedPoint.toMinorUnits(previous.getAmount()));
+        }
+        history = new ProcessedClientCCTransaction(current.getClientId(), current, lastTransactions);
+    }
+
+    private static CreditCardTransaction transaction(String id, long timestamp, long amountInCents, Random random, CardDetails cardDetails, IpData ipData) {
+        // ~1e-5 grau (~1 m) de jitter em torno de Goiânia: mesmo com 10.000 transações a soma fica bem abaixo de 30 km
+        Geolocation geolocation = new Geolocation(-16.665136d + random.nextDouble() * 0.00001d, -49.286041d + random.nextDouble() * 0.00001d, null);
+        return new CreditCardTransaction(id, "bench-client", BigDecimal.valueOf(amountInCents, 2), timestamp, cardDetails, geolocation, ipData);
+    }
+
+    /**
+     * Um contexto novo por chamada, como no processador (o histórico é memoizado dentro do contexto).
+     */
+    private EvaluationContext context() {
+        switch (source) {
+            case HISTORY_BUFFER:
+                return new EvaluationContext(current, windowStart, () -> {
+                    throw new IllegalStateException("histórico de objetos indisponível no modo HISTORY_BUFFER");
+                }).withHistoryBuffer(historyBuffer);
+            case ROLLING_AGGREGATE:
+                return EvaluationContext.of(history).withRollingAggregate(rollingAggregate);
+            case DECAYING_COUNTERS:
+                return EvaluationContext.of(history).withDecayingCounters(decayingCounters);
+            case HISTORY:
+            default:
+                return EvaluationContext.of(history);
+        }
+    }
+
+    @Benchmark
+    public EvaluationType geo() {
+        return geo.evaluate(context());
+    }
+
+    @Benchmark
+    public EvaluationType multipleIp() {
+        return ip.evaluate(context());
+    }
+
+    @Benchmark
+    public EvaluationType pattern() {
+        return pattern.evaluate(context());
+    }
+
+    @Benchmark
+    public EvaluationType velocity() {
+        return velocity.evaluate(context());
+    }
+
+    @Benchmark
+    public EvaluationType highFrequency() {
+        return highFrequency.evaluate(context());
+    }
+}
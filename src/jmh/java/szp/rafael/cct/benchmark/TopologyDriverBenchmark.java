@@ -0,0 +1,241 @@
+package szp.rafael.cct.benchmark;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.test.TestRecord;
+import szp.rafael.cct.generator.SyntheticTransactionGenerator;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.stream.topology.CreditCardTransactionTopology;
+import szp.rafael.cct.stream.topology.CreditCardTransactionTopologyFinal;
+import szp.rafael.cct.stream.topology.TopologyOptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Vazão e latência ponta a ponta das topologias sobre o TopologyTestDriver (mesma abordagem do MainAppTestFinal).
+ *
+ * Não é um benchmark JMH: empurra N transações sintéticas e mede o tempo de cada pipeInput (que processa
+ * o registro de forma síncrona por todas as sub-topologias), relatando registros/s, percentis de latência,
+ * registros e bytes escritos em cada tópico (inclusive internos) e bytes das state stores em disco ao final.
+ *
+ * Uso: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=szp.rafael.cct.benchmark.TopologyDriverBenchmark \
+ *        -Dbenchmark.args="--records 1000000 --clients 100000 --skew 1.1 --topologies LEGACY,FINAL"
+ */
+public class TopologyDriverBenchmark {
+
+    /**
+     * Variantes comparáveis; todas leem e escrevem os mesmos tópicos externos.
+     */
+    public enum Variant {
+        LEGACY(CreditCardTransactionTopology::build),
+        FINAL(CreditCardTransactionTopologyFinal::build),
+        FINAL_SHARED_HISTORY(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withSharedHistoryStore(true))),
+        FINAL_COMPOSITE(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true))),
+        FINAL_COMPOSITE_HISTORY_BUFFER(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withHistoryBuffer(true).withRollingAggregates(true))),
+        FINAL_COMPOSITE_DECAYING_COUNTERS(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withDecayingCounters(true))),
+        FINAL_DIRECT_ROUTING(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withDirectDecisionRouting(true))),
+        FINAL_EAGER_DIRECT_ROUTING(() -> CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withEagerMergerCompletion(true).withDirectDecisionRouting(true)));
+
+        private final Supplier<Topology> topology;
+
+        Variant(Supplier<Topology> topology) {
+            this.topology = topology;
+        }
+    }
+
+    static final class Config {
+        long records = 1_000_000;
+        int clients = 10_000;
+        double skew = 1.0d;
+        long intervalMs = 50;
+        long seed = 42;
+        int drainEvery = 10_000;
+        List<Variant> variants = List.of(Variant.LEGACY, Variant.FINAL);
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--records" -> config.records = Long.parseLong(value);
+                    case "--clients" -> config.clients = Integer.parseInt(value);
+                    case "--skew" -> config.skew = Double.parseDouble(value);
+                    case "--interval-ms" -> config.intervalMs = Long.parseLong(value);
+                    case "--seed" -> config.seed = Long.parseLong(value);
+                    case "--drain-every" -> config.drainEvery = Integer.parseInt(value);
+                    case "--topologies" -> config.variants = Arrays.stream(value.split(",")).map(String::trim).map(Variant::valueOf).toList();
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+                i++;
+            }
+            return config;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Config config = Config.parse(args);
+        System.out.printf("records=%d clients=%d skew=%.2f interval-ms=%d seed=%d%n",
+                config.records, config.clients, config.skew, config.intervalMs, config.seed);
+        for (Variant variant : config.variants) {
+            run(variant, config);
+        }
+    }
+
+    static void run(Variant variant, Config config) throws IOException {
+        Path stateDir = Files.createTempDirectory("cct-bench-" + variant.name().toLowerCase() + "-");
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "bench-" + UUID.randomUUID());
+        props.put("auto.offset.reset", "earliest");
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+
+        SyntheticTransactionGenerator generator = new SyntheticTransactionGenerator(
+                config.clients, config.skew, 1761937000000L, config.intervalMs, config.seed);
+        int records = Math.toIntExact(config.records);
+        long[] latencies = new long[records];
+        long decisions = 0;
+        long processingNanos = 0;
+        Map<String, Long> storeBytes;
+        Map<String, long[]> topicTraffic = new TreeMap<>();
+
+        try (TopologyTestDriver driver = new TopologyTestDriver(variant.topology.get(), props)) {
+            TestInputTopic<String, CreditCardTransaction> input = driver.createInputTopic(
+                    CreditCardTransactionTopologyFinal.TRANSACTIONS_TOPIC,
+                    Serdes.String().serializer(),
+                    CreditCardTransactionTopologyFinal.getCreditCardTransactionSerde().serializer());
+            Map<String, TestOutputTopic<byte[], byte[]>> outputs = new HashMap<>();
+
+            long lastWallClockAdvance = generator.currentTimestamp();
+            for (int i = 0; i < records; i++) {
+                CreditCardTransaction transaction = generator.next();
+
+                long start = System.nanoTime();
+                input.pipeInput(transaction.getTransactionId(), transaction, transaction.getTimestamp());
+                long elapsed = System.nanoTime() - start;
+                latencies[i] = elapsed;
+                processingNanos += elapsed;
+
+                if ((i + 1) % config.drainEvery == 0 || i == records - 1) {
+                    // o relógio de parede acompanha o tempo de evento para disparar as pontuações (CCTxMerger)
+                    long start2 = System.nanoTime();
+                    driver.advanceWallClockTime(Duration.ofMillis(generator.currentTimestamp() - lastWallClockAdvance));
+                    processingNanos += System.nanoTime() - start2;
+                    lastWallClockAdvance = generator.currentTimestamp();
+                    decisions += drain(driver, outputs, topicTraffic);
+                }
+            }
+            // fecha as janelas de grace pendentes
+            long start = System.nanoTime();
+            driver.advanceWallClockTime(Duration.ofHours(1));
+            processingNanos += System.nanoTime() - start;
+            decisions += drain(driver, outputs, topicTraffic);
+
+            for (StateStore store : driver.getAllStateStores().values()) {
+                if (store.persistent() && store.isOpen()) {
+                    store.flush();
+                }
+            }
+            storeBytes = storeBytes(stateDir);
+        } finally {
+            deleteRecursively(stateDir);
+        }
+
+        report(variant, records, decisions, processingNanos, latencies, topicTraffic, storeBytes);
+    }
+
+    /**
+     * Esvazia todos os tópicos capturados pelo driver (inclusive internos, que também ficam retidos em memória)
+     * acumulando registros/bytes por tópico, e devolve quantas decisões saíram nos tópicos de processadas/recusadas.
+     */
+    private static long drain(TopologyTestDriver driver, Map<String, TestOutputTopic<byte[], byte[]>> outputs, Map<String, long[]> topicTraffic) {
+        long decisions = 0;
+        for (String topic : driver.producedTopicNames()) {
+            TestOutputTopic<byte[], byte[]> output = outputs.computeIfAbsent(topic,
+                    name -> driver.createOutputTopic(name, Serdes.ByteArray().deserializer(), Serdes.ByteArray().deserializer()));
+            List<TestRecord<byte[], byte[]>> records = output.readRecordsToList();
+            int drained = records.size();
+            long[] traffic = topicTraffic.computeIfAbsent(topic, name -> new long[2]);
+            traffic[0] += drained;
+            for (TestRecord<byte[], byte[]> record : records) {
+                traffic[1] += (record.key() == null ? 0 : record.key().length) + (record.value() == null ? 0 : record.value().length);
+            }
+            if (topic.equals(CreditCardTransactionTopologyFinal.PROCESSED_CREDIT_CARD_TRANSACTIONS_TOPIC)
+                    || topic.equals(CreditCardTransactionTopologyFinal.REFUSED_CREDIT_CARD_TRANSACTIONS_TOPIC)) {
+                decisions += drained;
+            }
+        }
+        return decisions;
+    }
+
+    private static void report(Variant variant, int records, long decisions, long processingNanos, long[] latencies,
+                               Map<String, long[]> topicTraffic, Map<String, Long> storeBytes) {
+        Arrays.sort(latencies);
+        double seconds = processingNanos / 1e9d;
+        System.out.printf("%n== %s ==%n", variant);
+        System.out.printf("records: %d  decisions: %d  processing: %.2fs  throughput: %.0f records/s%n",
+                records, decisions, seconds, records / seconds);
+        System.out.printf("latency (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e3d);
+        long topicBytes = topicTraffic.values().stream().mapToLong(traffic -> traffic[1]).sum();
+        System.out.printf("topics written: %d bytes (records / bytes)%n", topicBytes);
+        topicTraffic.forEach((topic, traffic) -> System.out.printf("  %-70s %d / %d%n", topic, traffic[0], traffic[1]));
+        long total = storeBytes.values().stream().mapToLong(Long::longValue).sum();
+        System.out.printf("state stores on disk: %d bytes%n", total);
+        storeBytes.forEach((store, bytes) -> System.out.printf("  %-40s %d%n", store, bytes));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e3d;
+    }
+
+    /**
+     * Bytes em disco por store: {@code <state.dir>/<app>/<task>/[rocksdb/]<store>/...}.
+     */
+    private static Map<String, Long> storeBytes(Path stateDir) throws IOException {
+        Map<String, Long> bytesByStore = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(stateDir)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                Path relative = stateDir.relativize(file);
+                if (relative.getNameCount() < 4) {
+                    return; // arquivos de controle da aplicação/task (.lock, checkpoint)
+                }
+                int storeIndex = relative.getName(2).toString().equals("rocksdb") ? 3 : 2;
+                String store = relative.getName(storeIndex).toString();
+                try {
+                    bytesByStore.merge(store, Files.size(file), Long::sum);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return bytesByStore;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package szp.rafael.cct;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import szp.rafael.cct.generator.FileTransactionSink;
+import szp.rafael.cct.generator.FraudPattern;
+import szp.rafael.cct.generator.KafkaTransactionSink;
+import szp.rafael.cct.generator.SyntheticTransactionGenerator;
+import szp.rafael.cct.generator.TransactionSink;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.serde.SerdeFactory;
+import szp.rafael.cct.serde.SerdeFormat;
+import szp.rafael.cct.stream.topology.CreditCardTransactionTopologyFinal;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga de CreditCardTransaction para o tópico credit-card-transactions (ou para um arquivo JSON Lines).
+ *
+ * Cada thread tem seu próprio {@link SyntheticTransactionGenerator} sobre uma fatia disjunta de clientes
+ * (a distribuição de Zipf vale dentro de cada fatia) e controla sua parte da taxa alvo. Com {@code --fraud-rate}
+ * essa fração das transações enviadas sai de {@link FraudPattern}s sorteados, marcados com is_fraud = true: como
+ * um padrão gera várias transações, a chance de sortear um padrão no lugar de uma transação normal é ajustada
+ * pelo tamanho médio dos padrões escolhidos.
+ *
+ * Exemplo:
+ *   java -cp target/classes:... szp.rafael.cct.CreditCardLoadGenerator --threads 4 --rate 20000 --records 5000000 \
+ *        --clients 200000 --skew 1.1 --fraud-rate 0.001 --patterns GEO_JUMP,BURST
+ */
+public class CreditCardLoadGenerator {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Uso: CreditCardLoadGenerator [opções]",
+            "  --bootstrap-servers <host:porta>  (default localhost:9092)",
+            "  --topic <nome> | --file <arquivo JSON Lines>",
+            "  --acks <0|1|all>  --format <" + Arrays.toString(SerdeFormat.values()) + ">",
+            "  --threads <n>  --rate <registros/s, 0 = sem limite>",
+            "  --records <n> | --duration-seconds <s>",
+            "  --clients <n>  --skew <expoente Zipf>  --seed <n>",
+            "  --fraud-rate <fração das transações, 0 a 1>  --patterns <" + Arrays.toString(FraudPattern.values()) + ">");
+
+    static final class Config {
+        String bootstrapServers = "localhost:9092";
+        String topic = CreditCardTransactionTopologyFinal.TRANSACTIONS_TOPIC;
+        String file;
+        String acks = "1";
+        SerdeFormat format = SerdeFormat.JSON;
+        int threads = 4;
+        long rate = 10_000; // registros/s somando todas as threads; 0 = sem limite
+        long records = 1_000_000; // 0 = até --duration-seconds
+        long durationSeconds = 0;
+        int clients = 100_000;
+        double skew = 1.0d;
+        double fraudRate = 0.0d;
+        List<FraudPattern> patterns = Arrays.asList(FraudPattern.values());
+        long seed = 42;
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Opção sem valor: " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--bootstrap-servers" -> config.bootstrapServers = value;
+                    case "--topic" -> config.topic = value;
+                    case "--file" -> config.file = value;
+                    case "--acks" -> config.acks = value;
+                    case "--format" -> config.format = SerdeFormat.valueOf(value);
+                    case "--threads" -> config.threads = Integer.parseInt(value);
+                    case "--rate" -> config.rate = Long.parseLong(value);
+                    case "--records" -> config.records = Long.parseLong(value);
+                    case "--duration-seconds" -> config.durationSeconds = Long.parseLong(value);
+                    case "--clients" -> config.clients = Integer.parseInt(value);
+                    case "--skew" -> config.skew = Double.parseDouble(value);
+                    case "--fraud-rate" -> config.fraudRate = Double.parseDouble(value);
+                    case "--patterns" -> config.patterns = Arrays.stream(value.split(",")).map(String::trim).map(FraudPattern::valueOf).toList();
+                    case "--seed" -> config.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+                i++;
+            }
+            if (config.records <= 0 && config.durationSeconds <= 0) {
+                throw new IllegalArgumentException("Informe --records ou --duration-seconds");
+            }
+            if (config.fraudRate < 0d || config.fraudRate > 1d) {
+                throw new IllegalArgumentException("--fraud-rate deve estar entre 0 e 1: " + config.fraudRate);
+            }
+            if (config.threads <= 0) {
+                throw new IllegalArgumentException("--threads deve ser maior que 0");
+            }
+            return config;
+        }
+
+        /**
+         * Probabilidade de sortear um padrão no lugar de uma transação normal para que, com padrões de tamanho
+         * médio m, a fração de transações de fraude enviadas seja {@code fraudRate}: q·m / (q·m + 1 - q) = r.
+         */
+        double patternProbability() {
+            if (fraudRate <= 0d || patterns.isEmpty()) {
+                return 0d;
+            }
+            double meanSize = patterns.stream().mapToInt(FraudPattern::size).average().orElse(1d);
+            return fraudRate / (meanSize * (1d - fraudRate) + fraudRate);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        AtomicLong sent = new AtomicLong();
+        AtomicLong injected = new AtomicLong();
+
+        try (TransactionSink sink = createSink(config)) {
+            long deadline = config.durationSeconds > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(config.durationSeconds) : Long.MAX_VALUE;
+            List<Thread> workers = new ArrayList<>();
+            int clientsPerThread = Math.max(1, config.clients / config.threads);
+            for (int t = 0; t < config.threads; t++) {
+                long quota = config.records > 0 ? config.records / config.threads + (t < config.records % config.threads ? 1 : 0) : Long.MAX_VALUE;
+                SyntheticTransactionGenerator generator = new SyntheticTransactionGenerator(
+                        clientsPerThread, config.skew, System.currentTimeMillis(), 0, config.seed + t, t * clientsPerThread, System::currentTimeMillis);
+                Worker worker = new Worker(generator, sink, config, quota, deadline, sent, injected);
+                Thread thread = new Thread(worker, "load-generator-" + t);
+                workers.add(thread);
+                thread.start();
+            }
+
+            long start = System.nanoTime();
+            long lastSent = 0;
+            while (workers.stream().anyMatch(Thread::isAlive)) {
+                TimeUnit.SECONDS.sleep(1);
+                long total = sent.get();
+                System.out.printf("enviadas: %d (%d/s) fraudes injetadas: %d%n", total, total - lastSent, injected.get());
+                lastSent = total;
+            }
+            sink.flush();
+            double seconds = (System.nanoTime() - start) / 1e9d;
+            System.out.printf("total: %d transações em %.1fs (%.0f/s), %d transações de padrões de fraude%n",
+                    sent.get(), seconds, sent.get() / seconds, injected.get());
+        }
+    }
+
+    private static TransactionSink createSink(Config config) {
+        if (config.file != null) {
+            return new FileTransactionSink(Path.of(config.file));
+        }
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.bootstrapServers);
+        props.put(ProducerConfig.ACKS_CONFIG, config.acks);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, "10");
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(128 * 1024));
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        return new KafkaTransactionSink(props, config.topic,
+                new SerdeFactory<CreditCardTransaction>().createSerde(CreditCardTransaction.class, config.format).serializer());
+    }
+
+    /**
+     * Gera e envia a parte de uma thread, respeitando a taxa por thread com um agendamento de período fixo.
+     */
+    static final class Worker implements Runnable {
+
+        private final SyntheticTransactionGenerator generator;
+        private final TransactionSink sink;
+        private final Config config;
+        private final long quota;
+        private final long deadline;
+        private final AtomicLong sent;
+        private final AtomicLong injected;
+
+        Worker(SyntheticTransactionGenerator generator, TransactionSink sink, Config config, long quota, long deadline, AtomicLong sent, AtomicLong injected) {
+            this.generator = generator;
+            this.sink = sink;
+            this.config = config;
+            this.quota = quota;
+            this.deadline = deadline;
+            this.sent = sent;
+            this.injected = injected;
+        }
+
+        @Override
+        public void run() {
+            long periodNanos = config.rate > 0 ? Math.max(1, TimeUnit.SECONDS.toNanos(config.threads) / config.rate) : 0;
+            double patternProbability = config.patternProbability();
+            long next = System.nanoTime();
+            long produced = 0;
+            while (produced < quota && System.nanoTime() < deadline) {
+                List<CreditCardTransaction> batch;
+                if (patternProbability > 0 && generator.random().nextDouble() < patternProbability) {
+                    FraudPattern pattern = config.patterns.get(generator.random().nextInt(config.patterns.size()));
+                    batch = pattern.generate(generator, generator.sampleClient());
+                } else {
+                    batch = List.of(generator.next());
+                }
+                for (CreditCardTransaction transaction : batch) {
+                    if (produced >= quota) {
+                        break;
+                    }
+                    if (periodNanos > 0) {
+                        next += periodNanos;
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    sink.send(transaction);
+                    produced++;
+                    sent.incrementAndGet();
+                    if (transaction.isFraud()) {
+                        injected.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package szp.rafael.cct.generator;
+
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Grava as transações em um arquivo JSON Lines (uma transação por linha, mesmo formato do tópico),
+ * para reproduzir a carga localmente sem um broker.
+ */
+public class FileTransactionSink implements TransactionSink {
+
+    private final BufferedWriter writer;
+
+    public FileTransactionSink(Path file) {
+        try {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void send(CreditCardTransaction transaction) {
+        try {
+            writer.write(transaction.toJSONString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package szp.rafael.cct.generator;
+
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Padrões de fraude injetáveis na carga sintética. Cada padrão gera a sequência de transações de um
+ * cliente que deve disparar a regra correspondente; as transações geradas saem com {@code isFraud = true}
+ * (rótulo de verdade para conferir as decisões da topologia).
+ */
+public enum FraudPattern {
+
+    /** Transação no local habitual seguida de outra a centenas de km (GeoWindowCheck). */
+    GEO_JUMP(2) {
+        @Override
+        List<CreditCardTransaction> transactions(SyntheticTransactionGenerator generator, int client) {
+            Random random = generator.random();
+            double latitude = generator.homeLatitude(client) + (random.nextBoolean() ? 5.0d : -5.0d);
+            double longitude = generator.homeLongitude(client) + (random.nextBoolean() ? 5.0d : -5.0d);
+            return List.of(
+                    generator.next(client),
+                    generator.next(client, amount(random, 20, 200), latitude, longitude, generator.ipAddress(client)));
+        }
+    },
+
+    /** Mais IPs públicos distintos do que o limite da janela (MultipleIPWindowCheck). */
+    IP_HOPPING(6) {
+        @Override
+        List<CreditCardTransaction> transactions(SyntheticTransactionGenerator generator, int client) {
+            Random random = generator.random();
+            List<CreditCardTransaction> transactions = new ArrayList<>();
+            for (int i = 0; i < size(); i++) {
+                transactions.add(generator.next(client, amount(random, 20, 200), generator.homeLatitude(client), generator.homeLongitude(client),
+                        SyntheticTransactionGenerator.publicIpAddress(random)));
+            }
+            return transactions;
+        }
+    },
+
+    /** Transação de teste de valor baixo seguida de uma de valor alto (PatternWindowCheck). */
+    SMALL_THEN_LARGE(2) {
+        @Override
+        List<CreditCardTransaction> transactions(SyntheticTransactionGenerator generator, int client) {
+            Random random = generator.random();
+            return List.of(
+                    generator.next(client, amount(random, 0.5d, 2.9d), generator.homeLatitude(client), generator.homeLongitude(client), generator.ipAddress(client)),
+                    generator.next(client, amount(random, 600, 3000), generator.homeLatitude(client), generator.homeLongitude(client), generator.ipAddress(client)));
+        }
+    },
+
+    /** Rajada de transações de valor alto (HighFrequencyWindowCheck e VelocityWindowCheck). */
+    BURST(12) {
+        @Override
+        List<CreditCardTransaction> transactions(SyntheticTransactionGenerator generator, int client) {
+            Random random = generator.random();
+            List<CreditCardTransaction> transactions = new ArrayList<>();
+            for (int i = 0; i < size(); i++) {
+                transactions.add(generator.next(client, amount(random, 200, 490), generator.homeLatitude(client), generator.homeLongitude(client), generator.ipAddress(client)));
+            }
+            return transactions;
+        }
+    };
+
+    private final int size;
+
+    FraudPattern(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Quantas transações o padrão gera.
+     */
+    public int size() {
+        return size;
+    }
+
+    abstract List<CreditCardTransaction> transactions(SyntheticTransactionGenerator generator, int client);
+
+    /**
+     * Gera o padrão para o cliente, marcando as transações como fraude.
+     */
+    public List<CreditCardTransaction> generate(SyntheticTransactionGenerator generator, int client) {
+        List<CreditCardTransaction> transactions = transactions(generator, client);
+        transactions.forEach(transaction -> transaction.setFraud(true));
+        return transactions;
+    }
+
+    private static BigDecimal amount(Random random, double min, double max) {
+        return BigDecimal.valueOf(Math.round((min + random.nextDouble() * (max - min)) * 100)).movePointLeft(2);
+    }
+}
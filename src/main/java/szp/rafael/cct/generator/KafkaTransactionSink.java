@@ -0,0 +1,53 @@
+package szp.rafael.cct.generator;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envia as transações para um tópico Kafka, chaveadas pelo transactionId (a topologia rechaveia por cliente).
+ * O KafkaProducer é thread-safe e compartilhado entre as threads do gerador.
+ */
+public class KafkaTransactionSink implements TransactionSink {
+
+    static Logger logger = org.slf4j.LoggerFactory.getLogger(KafkaTransactionSink.class);
+
+    private final Producer<String, CreditCardTransaction> producer;
+    private final String topic;
+    private final AtomicLong errors = new AtomicLong();
+
+    public KafkaTransactionSink(Properties producerProps, String topic, Serializer<CreditCardTransaction> valueSerializer) {
+        this.producer = new KafkaProducer<>(producerProps, new StringSerializer(), valueSerializer);
+        this.topic = topic;
+    }
+
+    @Override
+    public void send(CreditCardTransaction transaction) {
+        producer.send(new ProducerRecord<>(topic, null, transaction.getTimestamp(), transaction.getTransactionId(), transaction), (metadata, exception) -> {
+            if (exception != null && errors.getAndIncrement() % 1000 == 0) {
+                logger.error("Erro ao enviar transação: {} (total de erros: {})", exception.getMessage(), errors.get());
+            }
+        });
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void flush() {
+        producer.flush();
+    }
+
+    @Override
+    public void close() {
+        producer.close();
+    }
+}
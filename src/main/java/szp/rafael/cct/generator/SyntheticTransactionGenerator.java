@@ -0,0 +1,151 @@
+package szp.rafael.cct.generator;
+
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Gera transações sintéticas, determinísticas para uma mesma semente.
+ *
+ * Cada cliente tem um perfil fixo (cidade, IP público e cartão); o cliente de cada transação é sorteado
+ * por uma {@link ZipfDistribution} sobre {@code clients}, e o tempo de evento avança
+ * {@code intervalMs} (em média) a cada transação. Com um relógio externo (ex.: {@code System::currentTimeMillis})
+ * o tempo de evento passa a ser o do relógio, para carga ao vivo.
+ */
+public class SyntheticTransactionGenerator {
+
+    // caixa aproximada do território brasileiro
+    private static final double MIN_LATITUDE = -33.0d;
+    private static final double MAX_LATITUDE = 2.0d;
+    private static final double MIN_LONGITUDE = -72.0d;
+    private static final double MAX_LONGITUDE = -35.0d;
+
+    private final Random random;
+    private final ZipfDistribution clientDistribution;
+    private final double[] homeLatitudes;
+    private final double[] homeLongitudes;
+    private final String[] ipAddresses;
+    private final CardDetails[] cards;
+    private final long intervalMs;
+    private final int clientOffset;
+    private final String idPrefix;
+    private final LongSupplier clock;
+    private long timestamp;
+    private long sequence;
+
+    public SyntheticTransactionGenerator(int clients, double skew, long startTimestamp, long intervalMs, long seed) {
+        this(clients, skew, startTimestamp, intervalMs, seed, 0, null);
+    }
+
+    /**
+     * @param clientOffset deslocamento dos ids de cliente (e prefixo dos ids de transação), para que
+     *                     vários geradores em paralelo usem conjuntos disjuntos de clientes
+     * @param clock        relógio do tempo de evento, ou null para o relógio sintético
+     */
+    public SyntheticTransactionGenerator(int clients, double skew, long startTimestamp, long intervalMs, long seed, int clientOffset, LongSupplier clock) {
+        this.clientOffset = clientOffset;
+        this.idPrefix = "tx-" + clientOffset + "-";
+        this.clock = clock;
+        this.random = new Random(seed);
+        this.clientDistribution = new ZipfDistribution(clients, skew);
+        this.intervalMs = intervalMs;
+        this.timestamp = startTimestamp;
+        homeLatitudes = new double[clients];
+        homeLongitudes = new double[clients];
+        ipAddresses = new String[clients];
+        cards = new CardDetails[clients];
+        for (int i = 0; i < clients; i++) {
+            homeLatitudes[i] = MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+            homeLongitudes[i] = MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+            ipAddresses[i] = publicIpAddress(random);
+            cards[i] = new CardDetails(String.format("%016d", clientOffset + i), "CLIENT " + (clientOffset + i), i % 2 == 0 ? "VISA" : "MASTERCARD", "12/30");
+        }
+    }
+
+    /**
+     * Próxima transação, de um cliente sorteado.
+     */
+    public CreditCardTransaction next() {
+        return next(clientDistribution.sample(random));
+    }
+
+    /**
+     * Próxima transação de um cliente específico (usado na injeção de padrões de fraude).
+     */
+    public CreditCardTransaction next(int client) {
+        return next(client, randomAmount(), homeLatitudes[client], homeLongitudes[client], ipAddresses[client]);
+    }
+
+    /**
+     * Próxima transação de um cliente com valor, local e IP definidos pelo chamador.
+     */
+    public CreditCardTransaction next(int client, BigDecimal amount, double latitude, double longitude, String ipAddress) {
+        advanceClock();
+        // ~1km de variação em torno da cidade do cliente
+        Geolocation geolocation = new Geolocation(
+                latitude + (random.nextDouble() - 0.5d) * 0.01d,
+                longitude + (random.nextDouble() - 0.5d) * 0.01d,
+                null);
+        return new CreditCardTransaction(idPrefix + (sequence++), clientId(client), amount, timestamp, cards[client], geolocation, new IpData(ipAddress));
+    }
+
+    public String clientId(int client) {
+        return String.format("CLIENT_%08d", clientOffset + client);
+    }
+
+    public int clients() {
+        return clientDistribution.size();
+    }
+
+    public int sampleClient() {
+        return clientDistribution.sample(random);
+    }
+
+    public Random random() {
+        return random;
+    }
+
+    public long currentTimestamp() {
+        return timestamp;
+    }
+
+    public double homeLatitude(int client) {
+        return homeLatitudes[client];
+    }
+
+    public double homeLongitude(int client) {
+        return homeLongitudes[client];
+    }
+
+    public String ipAddress(int client) {
+        return ipAddresses[client];
+    }
+
+    private void advanceClock() {
+        if (clock != null) {
+            timestamp = clock.getAsLong();
+            return;
+        }
+        // intervalo exponencial com média intervalMs (chegadas de Poisson)
+        if (intervalMs > 0) {
+            timestamp += Math.round(-Math.log(1.0d - random.nextDouble()) * intervalMs);
+        }
+    }
+
+    private BigDecimal randomAmount() {
+        // log-normal com mediana ~R$ 45, limitada a [R$ 3,00 ; R$ 500,00] (fora das faixas da regra de padrão)
+        double amount = Math.exp(3.8d + random.nextGaussian() * 0.8d);
+        amount = Math.max(3.0d, Math.min(500.0d, amount));
+        return BigDecimal.valueOf(Math.round(amount * 100)).movePointLeft(2);
+    }
+
+    public static String publicIpAddress(Random random) {
+        // faixa 200.0.0.0/8 (alocação LACNIC, pública)
+        return "200." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+    }
+}
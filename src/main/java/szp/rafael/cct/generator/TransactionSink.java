@@ -0,0 +1,16 @@
+package szp.rafael.cct.generator;
+
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+
+/**
+ * Destino das transações geradas. Implementações devem aceitar chamadas concorrentes de várias threads.
+ */
+public interface TransactionSink extends AutoCloseable {
+
+    void send(CreditCardTransaction transaction);
+
+    void flush();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,40 @@
+package szp.rafael.cct.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Amostragem de índices em [0, n) com distribuição de Zipf: P(k) ∝ 1 / (k + 1)^s.
+ *
+ * Com {@code s = 0} a distribuição é uniforme; quanto maior o expoente, mais concentrada nos
+ * primeiros índices (poucos clientes muito ativos). A CDF é pré-calculada e cada amostra é
+ * uma busca binária.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n <= 0) throw new IllegalArgumentException("n must be > 0");
+        if (exponent < 0) throw new IllegalArgumentException("exponent must be >= 0");
+        cumulative = new double[n];
+        double sum = 0.0d;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0d / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int k = index >= 0 ? index : -index - 1;
+        return Math.min(k, cumulative.length - 1);
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
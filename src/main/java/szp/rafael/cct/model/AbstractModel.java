@@ -8,14 +8,16 @@ import java.io.Serializable;
 
 public abstract class AbstractModel implements Serializable {
 
-    private transient Gson gson =
+    // Gson é thread-safe: uma única instância compartilhada por todos os modelos,
+    // em vez de uma por objeto (inclusive os criados na desserialização e no histórico)
+    private static final Gson GSON =
             new GsonBuilder()
                     .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
                     .create();
 
 
     public String toJSONString(){
-        return gson.toJson(this);
+        return GSON.toJson(this);
     }
 
 }
@@ -0,0 +1,121 @@
+package szp.rafael.cct.model.creditCard;
+
+import szp.rafael.cct.model.AbstractModel;
+
+import java.math.BigDecimal;
+
+/**
+ * Pegada compacta de uma transação, usada como valor nas stores de histórico.
+ *
+ * Guarda somente o que as regras de janela consultam. Diferente de gravar o
+ * ProcessedClientCCTransaction inteiro, não embute o histórico anterior, então o tamanho
+ * da janela de um cliente cresce de forma linear (e não quadrática) com o número de transações.
+ */
+public class CCTransactionFootprint extends AbstractModel {
+
+    private String transactionId;
+    private long timestamp;
+    private BigDecimal amount;
+    private Double latitude;
+    private Double longitude;
+    private String publicIpAddress;
+    private String cardId;
+
+    // Construtor padrão (necessário para serialização/desserialização do Kafka Streams)
+    public CCTransactionFootprint() {
+    }
+
+    public CCTransactionFootprint(String transactionId, long timestamp, BigDecimal amount, Double latitude, Double longitude, String publicIpAddress, String cardId) {
+        this.transactionId = transactionId;
+        this.timestamp = timestamp;
+        this.amount = amount;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.publicIpAddress = publicIpAddress;
+        this.cardId = cardId;
+    }
+
+    public static CCTransactionFootprint from(CreditCardTransaction transaction) {
+        Geolocation geolocation = transaction.getGeolocation();
+        return new CCTransactionFootprint(
+                transaction.getTransactionId(),
+                transaction.getTimestamp(),
+                transaction.getAmount(),
+                geolocation != null ? geolocation.getLatitude() : null,
+                geolocation != null ? geolocation.getLongitude() : null,
+                transaction.getIpData() != null ? transaction.getIpData().getPublicIpAddress() : null,
+                transaction.getCardDetails() != null ? transaction.getCardDetails().getCardId() : null
+        );
+    }
+
+    /**
+     * Reconstrói a transação (somente com os campos da pegada) para as regras de janela.
+     */
+    public CreditCardTransaction toCreditCardTransaction(String clientId) {
+        return new CreditCardTransaction(
+                transactionId,
+                clientId,
+                amount,
+                timestamp,
+                cardId != null ? new CardDetails(cardId, null, null, null) : null,
+                latitude != null && longitude != null ? new Geolocation(latitude, longitude, null) : null,
+                publicIpAddress != null ? new IpData(publicIpAddress) : null
+        );
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getPublicIpAddress() {
+        return publicIpAddress;
+    }
+
+    public void setPublicIpAddress(String publicIpAddress) {
+        this.publicIpAddress = publicIpAddress;
+    }
+
+    public String getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(String cardId) {
+        this.cardId = cardId;
+    }
+}
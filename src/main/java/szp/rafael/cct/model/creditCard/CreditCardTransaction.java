@@ -1,6 +1,7 @@
 package szp.rafael.cct.model.creditCard;
 
 import szp.rafael.cct.model.AbstractModel;
+import szp.rafael.cct.utils.FixedPoint;
 
 import java.math.BigDecimal;
 
@@ -11,6 +12,7 @@ public class CreditCardTransaction extends AbstractModel {
     private BigDecimal amount;   // Valor da transação
     private long timestamp; // Timestamp UTC
     private boolean isFraud;
+    private transient long amountInMinorUnits = Long.MIN_VALUE; // cache de getAmountInMinorUnits, fora do JSON
 
     // Objetos aninhados
     private CardDetails cardDetails;
@@ -56,6 +58,17 @@ public class CreditCardTransaction extends AbstractModel {
 
     public void setAmount(BigDecimal amount) {
         this.amount = amount;
+        this.amountInMinorUnits = Long.MIN_VALUE;
+    }
+
+    /**
+     * Valor em centavos, convertido uma única vez por instância para as regras compararem e somarem em long.
+     */
+    public long getAmountInMinorUnits() {
+        if (amountInMinorUnits == Long.MIN_VALUE) {
+            amountInMinorUnits = FixedPoint.toMinorUnits(amount);
+        }
+        return amountInMinorUnits;
     }
 
     public long getTimestamp() {
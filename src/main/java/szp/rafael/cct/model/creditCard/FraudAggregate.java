@@ -0,0 +1,92 @@
+package szp.rafael.cct.model.creditCard;
+
+import szp.rafael.cct.model.AbstractModel;
+
+/**
+ * Estado do CCTxMerger por transactionId: a transação com o score acumulado e o controle de conclusão.
+ */
+public class FraudAggregate extends AbstractModel {
+
+    private ProcessedClientCCTransaction transaction;
+    private int receivedResults;
+    private long deadline;
+    private boolean emitted;
+    private boolean dirty;
+    private int firedRules;
+
+    // Construtor padrão (necessário para serialização/desserialização do Kafka Streams)
+    public FraudAggregate() {
+    }
+
+    public FraudAggregate(ProcessedClientCCTransaction transaction, int receivedResults, long deadline, boolean emitted, boolean dirty, int firedRules) {
+        this.transaction = transaction;
+        this.receivedResults = receivedResults;
+        this.deadline = deadline;
+        this.emitted = emitted;
+        this.dirty = dirty;
+        this.firedRules = firedRules;
+    }
+
+    public ProcessedClientCCTransaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(ProcessedClientCCTransaction transaction) {
+        this.transaction = transaction;
+    }
+
+    /**
+     * Quantos resultados de regra já chegaram para a transação.
+     */
+    public int getReceivedResults() {
+        return receivedResults;
+    }
+
+    public void setReceivedResults(int receivedResults) {
+        this.receivedResults = receivedResults;
+    }
+
+    /**
+     * Instante (wall-clock, epoch ms) a partir do qual o agregado expira.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Se a decisão já foi emitida.
+     */
+    public boolean isEmitted() {
+        return emitted;
+    }
+
+    public void setEmitted(boolean emitted) {
+        this.emitted = emitted;
+    }
+
+    /**
+     * Se o score mudou (contaminação) depois da emissão e a decisão precisa ser reemitida.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    /**
+     * Regras que dispararam para a própria transação (máscara de FraudRule), sem contar a contaminação.
+     */
+    public int getFiredRules() {
+        return firedRules;
+    }
+
+    public void setFiredRules(int firedRules) {
+        this.firedRules = firedRules;
+    }
+}
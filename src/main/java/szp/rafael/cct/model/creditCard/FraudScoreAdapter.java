@@ -0,0 +1,30 @@
+package szp.rafael.cct.model.creditCard;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import szp.rafael.cct.utils.FixedPoint;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Mantém o score em milésimos (long) no modelo e decimal no JSON, com o mesmo texto de quando o campo era BigDecimal.
+ */
+public class FraudScoreAdapter extends TypeAdapter<Long> {
+
+    @Override
+    public void write(JsonWriter out, Long thousandths) throws IOException {
+        out.value(FixedPoint.fromThousandths(thousandths == null ? 0L : thousandths));
+    }
+
+    @Override
+    public Long read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0L;
+        }
+        return FixedPoint.toThousandths(new BigDecimal(in.nextString()));
+    }
+}
@@ -1,11 +1,13 @@
 package szp.rafael.cct.model.creditCard;
 
 import szp.rafael.cct.model.AbstractModel;
+import szp.rafael.cct.utils.GeoPoint;
 
 public class Geolocation extends AbstractModel {
     private double latitude;
     private double longitude;
     private String googlePlacesId;
+    private transient GeoPoint point; // cache de getPoint, fora do JSON
 
     // Construtor padrão
     public Geolocation() {
@@ -25,6 +27,7 @@ public class Geolocation extends AbstractModel {
 
     public void setLatitude(double latitude) {
         this.latitude = latitude;
+        this.point = null;
     }
 
     public double getLongitude() {
@@ -33,6 +36,17 @@ public class Geolocation extends AbstractModel {
 
     public void setLongitude(double longitude) {
         this.longitude = longitude;
+        this.point = null;
+    }
+
+    /**
+     * Ponto com o vetor unitário calculado uma única vez por instância (ver {@link GeoPoint}).
+     */
+    public GeoPoint getPoint() {
+        if (point == null) {
+            point = GeoPoint.of(latitude, longitude);
+        }
+        return point;
     }
 
     public String getGooglePlacesId() {
@@ -1,10 +1,14 @@
 package szp.rafael.cct.model.creditCard;
 
 import szp.rafael.cct.model.AbstractModel;
+import szp.rafael.cct.utils.IpLiteral;
 
 public class IpData extends AbstractModel {
 
     private String publicIpAddress;
+    // forma primitiva do endereço, convertida uma única vez por instância (fora do JSON)
+    private transient IpLiteral parsedAddress;
+    private transient boolean addressParsed;
 
     // Construtor padrão
     public IpData() {
@@ -22,6 +26,19 @@ public class IpData extends AbstractModel {
 
     public void setPublicIpAddress(String publicIpAddress) {
         this.publicIpAddress = publicIpAddress;
+        this.parsedAddress = null;
+        this.addressParsed = false;
+    }
+
+    /**
+     * Endereço já convertido por {@link IpLiteral#parse(String)}; null se não for um literal IP válido.
+     */
+    public IpLiteral getParsedAddress() {
+        if (!addressParsed) {
+            parsedAddress = IpLiteral.parse(publicIpAddress);
+            addressParsed = true;
+        }
+        return parsedAddress;
     }
 
 }
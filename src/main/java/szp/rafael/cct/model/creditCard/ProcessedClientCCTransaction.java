@@ -1,10 +1,11 @@
 package szp.rafael.cct.model.creditCard;
 
+import com.google.gson.annotations.JsonAdapter;
 import szp.rafael.cct.collection.ConcurrentUnboundedOrderedSet;
 import szp.rafael.cct.model.AbstractModel;
+import szp.rafael.cct.utils.FixedPoint;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.LinkedHashSet;
 
 public class ProcessedClientCCTransaction extends AbstractModel {
@@ -12,7 +13,8 @@ public class ProcessedClientCCTransaction extends AbstractModel {
     private String clientId;
     private CreditCardTransaction currentClientCCTransaction;
     private LinkedHashSet<CreditCardTransaction> lastCCTransactions;
-    private BigDecimal fraudScore = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_EVEN);
+    @JsonAdapter(FraudScoreAdapter.class)
+    private long fraudScore; // em milésimos; no JSON continua decimal (ver FraudScoreAdapter)
 
     public ProcessedClientCCTransaction() {
     }
@@ -46,18 +48,33 @@ public class ProcessedClientCCTransaction extends AbstractModel {
         return lastCCTransactions;
     }
 
+    /**
+     * Se o histórico foi definido; o getter devolve um conjunto vazio quando não foi, mas o JSON do Gson omite o campo.
+     */
+    public boolean hasLastCCTransactions() {
+        return lastCCTransactions != null;
+    }
+
     public void setLastCCTransactions(LinkedHashSet<CreditCardTransaction> lastCCTransactions) {
         this.lastCCTransactions = lastCCTransactions;
     }
 
     public BigDecimal getFraudScore() {
-        if(fraudScore==null){
-            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_EVEN);
-        }
-        return fraudScore;
+        return FixedPoint.fromThousandths(fraudScore);
     }
 
     public void setFraudScore(BigDecimal fraudScore) {
+        this.fraudScore = FixedPoint.toThousandths(fraudScore);
+    }
+
+    /**
+     * Score em milésimos, para a aritmética das regras e do merger sem BigDecimal.
+     */
+    public long getFraudScoreThousandths() {
+        return fraudScore;
+    }
+
+    public void setFraudScoreThousandths(long fraudScore) {
         this.fraudScore = fraudScore;
     }
 }
@@ -0,0 +1,96 @@
+package szp.rafael.cct.model.creditCard;
+
+import szp.rafael.cct.model.AbstractModel;
+
+/**
+ * Resultado de uma única regra para uma transação, enviado das regras ao CCTxMerger pelo repartition por transactionId.
+ *
+ * Somente um dos resultados de cada transação carrega o ProcessedClientCCTransaction (transação atual + histórico);
+ * os demais levam só o score, de forma que o tráfego do repartition não cresce com a janela do cliente a cada regra.
+ */
+public class RuleResult extends AbstractModel {
+
+    private String transactionId;
+    private String clientId;
+    private int rule;
+    private long fraudScoreThousandths;
+    private long timestamp;
+    private ProcessedClientCCTransaction transaction;
+
+    // Construtor padrão (necessário para serialização/desserialização do Kafka Streams)
+    public RuleResult() {
+    }
+
+    public RuleResult(String transactionId, String clientId, int rule, long fraudScoreThousandths, long timestamp, ProcessedClientCCTransaction transaction) {
+        this.transactionId = transactionId;
+        this.clientId = clientId;
+        this.rule = rule;
+        this.fraudScoreThousandths = fraudScoreThousandths;
+        this.timestamp = timestamp;
+        this.transaction = transaction;
+    }
+
+    /**
+     * @param rule ordinal da regra (FraudRule)
+     * @param attachTransaction se este resultado carrega a transação e o histórico
+     */
+    public static RuleResult of(int rule, ProcessedClientCCTransaction scored, boolean attachTransaction) {
+        CreditCardTransaction current = scored.getCurrentClientCCTransaction();
+        return new RuleResult(current.getTransactionId(), scored.getClientId(), rule, scored.getFraudScoreThousandths(), current.getTimestamp(),
+                attachTransaction ? scored : null);
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public int getRule() {
+        return rule;
+    }
+
+    public void setRule(int rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * Score da regra em milésimos.
+     */
+    public long getFraudScoreThousandths() {
+        return fraudScoreThousandths;
+    }
+
+    public void setFraudScoreThousandths(long fraudScoreThousandths) {
+        this.fraudScoreThousandths = fraudScoreThousandths;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Transação atual com o histórico da janela, ou null nos resultados compactos.
+     */
+    public ProcessedClientCCTransaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(ProcessedClientCCTransaction transaction) {
+        this.transaction = transaction;
+    }
+}
@@ -0,0 +1,11 @@
+package szp.rafael.cct.serde;
+
+/**
+ * Codifica/decodifica um tipo no formato binário do {@link BinarySerdes}.
+ */
+public interface BinaryCodec<T> {
+
+    void write(BinaryWriter out, T value);
+
+    T read(BinaryReader in);
+}
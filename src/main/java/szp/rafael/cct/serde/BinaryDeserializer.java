@@ -0,0 +1,25 @@
+package szp.rafael.cct.serde;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+public class BinaryDeserializer<T> implements Deserializer<T> {
+
+    private final BinaryCodec<T> codec;
+
+    public BinaryDeserializer(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] bytes) {
+        if (bytes == null)
+            return null;
+
+        BinaryReader in = new BinaryReader(bytes);
+        int version = in.readByte();
+        if (version != BinarySerdes.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Versão de payload binário não suportada: " + version);
+        }
+        return codec.read(in);
+    }
+}
@@ -0,0 +1,105 @@
+package szp.rafael.cct.serde;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura do formato escrito pelo {@link BinaryWriter}.
+ */
+public class BinaryReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() {
+        if (position >= buffer.length) {
+            throw new IllegalArgumentException("Payload binário truncado");
+        }
+        return buffer[position++];
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint inválido");
+    }
+
+    public int readVarInt() {
+        return (int) readVarLong();
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public int readSignedVarInt() {
+        return (int) readSignedVarLong();
+    }
+
+    public long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    public String readString() {
+        int length = readSignedVarInt();
+        if (length < 0) {
+            return null;
+        }
+        if (position + length > buffer.length) {
+            throw new IllegalArgumentException("Payload binário truncado");
+        }
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public BigDecimal readBigDecimal() {
+        int tag = readByte();
+        switch (tag) {
+            case 0:
+                return null;
+            case 1: {
+                int scale = readSignedVarInt();
+                return BigDecimal.valueOf(readSignedVarLong(), scale);
+            }
+            case 2: {
+                int scale = readSignedVarInt();
+                byte[] bytes = new byte[readVarInt()];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) readByte();
+                }
+                return new BigDecimal(new BigInteger(bytes), scale);
+            }
+            default:
+                throw new IllegalArgumentException("Tag de BigDecimal inválida: " + tag);
+        }
+    }
+
+    public <T> T readNullable(BinaryCodec<T> codec) {
+        return readBoolean() ? codec.read(this) : null;
+    }
+}
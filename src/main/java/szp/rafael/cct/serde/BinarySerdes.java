@@ -0,0 +1,35 @@
+package szp.rafael.cct.serde;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serde binário compacto dos modelos: um byte de versão seguido dos campos em ordem fixa
+ * (ver {@link ModelBinaryCodecs}). Indicado para tópicos internos e changelogs, onde os nomes
+ * de campo do JSON repetidos em cada elemento do histórico dominam o tamanho do payload.
+ */
+public class BinarySerdes<T> implements Serde<T> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private final BinaryCodec<T> codec;
+
+    public BinarySerdes(Class<T> tClass) {
+        this(ModelBinaryCodecs.forClass(tClass));
+    }
+
+    public BinarySerdes(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Serializer<T> serializer() {
+        return new BinarySerializer<>(codec);
+    }
+
+    @Override
+    public Deserializer<T> deserializer() {
+        return new BinaryDeserializer<>(codec);
+    }
+}
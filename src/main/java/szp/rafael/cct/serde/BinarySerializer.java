@@ -0,0 +1,21 @@
+package szp.rafael.cct.serde;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+public class BinarySerializer<T> implements Serializer<T> {
+
+    private final BinaryCodec<T> codec;
+
+    public BinarySerializer(BinaryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        if (data == null) return null;
+        BinaryWriter out = new BinaryWriter();
+        out.writeByte(BinarySerdes.FORMAT_VERSION);
+        codec.write(out, data);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package szp.rafael.cct.serde;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer de escrita do formato binário: inteiros em varint (zigzag para valores com sinal),
+ * doubles em 8 bytes big-endian e strings em UTF-8 prefixadas pelo tamanho (-1 para null).
+ */
+public class BinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeSignedVarInt(int value) {
+        writeSignedVarLong(value);
+    }
+
+    public void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeSignedVarInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeSignedVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * null, ou escala + valor não escalado (varlong quando cabe em 64 bits).
+     */
+    public void writeBigDecimal(BigDecimal value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            writeByte(1);
+            writeSignedVarInt(value.scale());
+            writeSignedVarLong(unscaled.longValue());
+        } else {
+            writeByte(2);
+            writeSignedVarInt(value.scale());
+            byte[] bytes = unscaled.toByteArray();
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+
+    public <T> void writeNullable(BinaryCodec<T> codec, T value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            codec.write(this, value);
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package szp.rafael.cct.serde;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Codifica/decodifica um tipo em JSON com o streaming API do Jackson (sem databind/reflexão).
+ */
+public interface JacksonCodec<T> {
+
+    void write(JsonGenerator generator, T value) throws IOException;
+
+    /**
+     * Lê o objeto cujo START_OBJECT é o token corrente do parser.
+     */
+    T read(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,33 @@
+package szp.rafael.cct.serde;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Alternativa ao {@link JSONSerdes} sobre o streaming API do Jackson (parser/generator), lendo e
+ * escrevendo bytes UTF-8 diretamente. O JSON produzido segue o mesmo formato do Gson (snake_case,
+ * nulos omitidos), de modo que os dois serdes podem ler os registros um do outro nos mesmos tópicos.
+ */
+public class JacksonJSONSerdes<T> implements Serde<T> {
+
+    // JsonFactory é thread-safe e deve ser compartilhada
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JacksonCodec<T> codec;
+
+    public JacksonJSONSerdes(Class<T> tClass) {
+        this.codec = ModelJacksonCodecs.forClass(tClass);
+    }
+
+    @Override
+    public Serializer<T> serializer() {
+        return new JacksonJsonSerializer<>(codec);
+    }
+
+    @Override
+    public Deserializer<T> deserializer() {
+        return new JacksonJsonDeserializer<>(codec);
+    }
+}
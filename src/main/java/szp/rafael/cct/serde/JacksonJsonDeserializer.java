@@ -0,0 +1,39 @@
+package szp.rafael.cct.serde;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Lê o JSON direto dos bytes UTF-8 do registro, sem o {@code new String(bytes)} do {@link JSONDeserializer}.
+ */
+public class JacksonJsonDeserializer<T> implements Deserializer<T> {
+
+    private final JacksonCodec<T> codec;
+
+    public JacksonJsonDeserializer(JacksonCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] bytes) {
+        if (bytes == null)
+            return null;
+
+        try (JsonParser parser = JacksonJSONSerdes.JSON_FACTORY.createParser(bytes)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new SerializationException("JSON inválido no tópico " + topic + ": esperado objeto, encontrado " + token);
+            }
+            return codec.read(parser);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Falha ao desserializar registro do tópico " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package szp.rafael.cct.serde;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+
+/**
+ * Escreve UTF-8 direto em um byte[], sem passar por String.
+ */
+public class JacksonJsonSerializer<T> implements Serializer<T> {
+
+    private final JacksonCodec<T> codec;
+
+    public JacksonJsonSerializer(JacksonCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        if (data == null) return null;
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder();
+             JsonGenerator generator = JacksonJSONSerdes.JSON_FACTORY.createGenerator(bytes, JsonEncoding.UTF8)) {
+            codec.write(generator, data);
+            generator.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Falha ao serializar registro do tópico " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package szp.rafael.cct.serde;
+
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.FraudAggregate;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.model.creditCard.RuleResult;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Codecs binários dos modelos. Os campos são gravados sempre na mesma ordem, sem nomes;
+ * qualquer mudança de layout deve incrementar {@link BinarySerdes#FORMAT_VERSION}.
+ */
+public final class ModelBinaryCodecs {
+
+    private ModelBinaryCodecs() {}
+
+    public static final BinaryCodec<CardDetails> CARD_DETAILS = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, CardDetails value) {
+            out.writeString(value.getCardId());
+            out.writeString(value.getNameOnCard());
+            out.writeString(value.getBrand());
+            out.writeString(value.getExpiryDate());
+        }
+
+        @Override
+        public CardDetails read(BinaryReader in) {
+            return new CardDetails(in.readString(), in.readString(), in.readString(), in.readString());
+        }
+    };
+
+    public static final BinaryCodec<Geolocation> GEOLOCATION = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, Geolocation value) {
+            out.writeDouble(value.getLatitude());
+            out.writeDouble(value.getLongitude());
+            out.writeString(value.getGooglePlacesId());
+        }
+
+        @Override
+        public Geolocation read(BinaryReader in) {
+            return new Geolocation(in.readDouble(), in.readDouble(), in.readString());
+        }
+    };
+
+    public static final BinaryCodec<IpData> IP_DATA = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, IpData value) {
+            out.writeString(value.getPublicIpAddress());
+        }
+
+        @Override
+        public IpData read(BinaryReader in) {
+            return new IpData(in.readString());
+        }
+    };
+
+    public static final BinaryCodec<CreditCardTransaction> CREDIT_CARD_TRANSACTION = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, CreditCardTransaction value) {
+            out.writeString(value.getTransactionId());
+            out.writeString(value.getClientId());
+            out.writeBigDecimal(value.getAmount());
+            out.writeSignedVarLong(value.getTimestamp());
+            out.writeBoolean(value.isFraud());
+            out.writeNullable(CARD_DETAILS, value.getCardDetails());
+            out.writeNullable(GEOLOCATION, value.getGeolocation());
+            out.writeNullable(IP_DATA, value.getIpData());
+        }
+
+        @Override
+        public CreditCardTransaction read(BinaryReader in) {
+            String transactionId = in.readString();
+            String clientId = in.readString();
+            CreditCardTransaction transaction = new CreditCardTransaction();
+            transaction.setTransactionId(transactionId);
+            transaction.setClientId(clientId);
+            transaction.setAmount(in.readBigDecimal());
+            transaction.setTimestamp(in.readSignedVarLong());
+            transaction.setFraud(in.readBoolean());
+            transaction.setCardDetails(in.readNullable(CARD_DETAILS));
+            transaction.setGeolocation(in.readNullable(GEOLOCATION));
+            transaction.setIpData(in.readNullable(IP_DATA));
+            return transaction;
+        }
+    };
+
+    public static final BinaryCodec<ProcessedClientCCTransaction> PROCESSED_CLIENT_CC_TRANSACTION = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, ProcessedClientCCTransaction value) {
+            out.writeString(value.getClientId());
+            out.writeNullable(CREDIT_CARD_TRANSACTION, value.getCurrentClientCCTransaction());
+            LinkedHashSet<CreditCardTransaction> history = value.getLastCCTransactions();
+            out.writeVarInt(history.size());
+            for (CreditCardTransaction transaction : history) {
+                CREDIT_CARD_TRANSACTION.write(out, transaction);
+            }
+            out.writeBigDecimal(value.getFraudScore());
+        }
+
+        @Override
+        public ProcessedClientCCTransaction read(BinaryReader in) {
+            String clientId = in.readString();
+            CreditCardTransaction current = in.readNullable(CREDIT_CARD_TRANSACTION);
+            int size = in.readVarInt();
+            LinkedHashSet<CreditCardTransaction> history = new LinkedHashSet<>();
+            for (int i = 0; i < size; i++) {
+                history.add(CREDIT_CARD_TRANSACTION.read(in));
+            }
+            ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(clientId, current, history);
+            transaction.setFraudScore(in.readBigDecimal());
+            return transaction;
+        }
+    };
+
+    public static final BinaryCodec<CCTransactionFootprint> CC_TRANSACTION_FOOTPRINT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, CCTransactionFootprint value) {
+            out.writeString(value.getTransactionId());
+            out.writeSignedVarLong(value.getTimestamp());
+            out.writeBigDecimal(value.getAmount());
+            boolean hasGeolocation = value.getLatitude() != null && value.getLongitude() != null;
+            out.writeBoolean(hasGeolocation);
+            if (hasGeolocation) {
+                out.writeDouble(value.getLatitude());
+                out.writeDouble(value.getLongitude());
+            }
+            out.writeString(value.getPublicIpAddress());
+            out.writeString(value.getCardId());
+        }
+
+        @Override
+        public CCTransactionFootprint read(BinaryReader in) {
+            String transactionId = in.readString();
+            long timestamp = in.readSignedVarLong();
+            BigDecimal amount = in.readBigDecimal();
+            Double latitude = null;
+            Double longitude = null;
+            if (in.readBoolean()) {
+                latitude = in.readDouble();
+                longitude = in.readDouble();
+            }
+            return new CCTransactionFootprint(transactionId, timestamp, amount, latitude, longitude, in.readString(), in.readString());
+        }
+    };
+
+    public static final BinaryCodec<FraudAggregate> FRAUD_AGGREGATE = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, FraudAggregate value) {
+            out.writeNullable(PROCESSED_CLIENT_CC_TRANSACTION, value.getTransaction());
+            out.writeVarInt(value.getReceivedResults());
+            out.writeSignedVarLong(value.getDeadline());
+            out.writeBoolean(value.isEmitted());
+            out.writeBoolean(value.isDirty());
+            out.writeVarInt(value.getFiredRules());
+        }
+
+        @Override
+        public FraudAggregate read(BinaryReader in) {
+            return new FraudAggregate(in.readNullable(PROCESSED_CLIENT_CC_TRANSACTION), in.readVarInt(), in.readSignedVarLong(), in.readBoolean(), in.readBoolean(), in.readVarInt());
+        }
+    };
+
+    public static final BinaryCodec<RuleResult> RULE_RESULT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, RuleResult value) {
+            out.writeString(value.getTransactionId());
+            out.writeString(value.getClientId());
+            out.writeVarInt(value.getRule());
+            out.writeSignedVarLong(value.getFraudScoreThousandths());
+            out.writeSignedVarLong(value.getTimestamp());
+            out.writeNullable(PROCESSED_CLIENT_CC_TRANSACTION, value.getTransaction());
+        }
+
+        @Override
+        public RuleResult read(BinaryReader in) {
+            return new RuleResult(in.readString(), in.readString(), in.readVarInt(), in.readSignedVarLong(), in.readSignedVarLong(), in.readNullable(PROCESSED_CLIENT_CC_TRANSACTION));
+        }
+    };
+
+    private static final Map<Class<?>, BinaryCodec<?>> CODECS = Map.of(
+            CardDetails.class, CARD_DETAILS,
+            Geolocation.class, GEOLOCATION,
+            IpData.class, IP_DATA,
+            CreditCardTransaction.class, CREDIT_CARD_TRANSACTION,
+            ProcessedClientCCTransaction.class, PROCESSED_CLIENT_CC_TRANSACTION,
+            CCTransactionFootprint.class, CC_TRANSACTION_FOOTPRINT,
+            FraudAggregate.class, FRAUD_AGGREGATE,
+            RuleResult.class, RULE_RESULT
+    );
+
+    @SuppressWarnings("unchecked")
+    public static <T> BinaryCodec<T> forClass(Class<T> clazz) {
+        BinaryCodec<T> codec = (BinaryCodec<T>) CODECS.get(clazz);
+        if (codec == null) {
+            throw new IllegalArgumentException("Sem codec binário para " + clazz.getName());
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,367 @@
+package szp.rafael.cct.serde;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.FraudAggregate;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.model.creditCard.RuleResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Codecs JSON dos modelos no mesmo formato do Gson usado pelo {@link JsonSerializer}:
+ * nomes em snake_case (LOWER_CASE_WITH_UNDERSCORES), campos nulos omitidos e números
+ * escritos com o toString do Java. Campos desconhecidos são ignorados na leitura.
+ */
+public final class ModelJacksonCodecs {
+
+    private ModelJacksonCodecs() {}
+
+    public static final JacksonCodec<CardDetails> CARD_DETAILS = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, CardDetails value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "card_id", value.getCardId());
+            writeString(generator, "name_on_card", value.getNameOnCard());
+            writeString(generator, "brand", value.getBrand());
+            writeString(generator, "expiry_date", value.getExpiryDate());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public CardDetails read(JsonParser parser) throws IOException {
+            CardDetails cardDetails = new CardDetails();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "card_id" -> cardDetails.setCardId(readString(parser));
+                    case "name_on_card" -> cardDetails.setNameOnCard(readString(parser));
+                    case "brand" -> cardDetails.setBrand(readString(parser));
+                    case "expiry_date" -> cardDetails.setExpiryDate(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return cardDetails;
+        }
+    };
+
+    public static final JacksonCodec<Geolocation> GEOLOCATION = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, Geolocation value) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("latitude", value.getLatitude());
+            generator.writeNumberField("longitude", value.getLongitude());
+            writeString(generator, "google_places_id", value.getGooglePlacesId());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public Geolocation read(JsonParser parser) throws IOException {
+            Geolocation geolocation = new Geolocation();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "latitude" -> geolocation.setLatitude(parser.getValueAsDouble());
+                    case "longitude" -> geolocation.setLongitude(parser.getValueAsDouble());
+                    case "google_places_id" -> geolocation.setGooglePlacesId(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return geolocation;
+        }
+    };
+
+    public static final JacksonCodec<IpData> IP_DATA = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, IpData value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "public_ip_address", value.getPublicIpAddress());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public IpData read(JsonParser parser) throws IOException {
+            IpData ipData = new IpData();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("public_ip_address".equals(field)) {
+                    ipData.setPublicIpAddress(readString(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return ipData;
+        }
+    };
+
+    public static final JacksonCodec<CreditCardTransaction> CREDIT_CARD_TRANSACTION = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, CreditCardTransaction value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "transaction_id", value.getTransactionId());
+            writeString(generator, "client_id", value.getClientId());
+            writeDecimal(generator, "amount", value.getAmount());
+            generator.writeNumberField("timestamp", value.getTimestamp());
+            generator.writeBooleanField("is_fraud", value.isFraud());
+            writeObject(generator, "card_details", CARD_DETAILS, value.getCardDetails());
+            writeObject(generator, "geolocation", GEOLOCATION, value.getGeolocation());
+            writeObject(generator, "ip_data", IP_DATA, value.getIpData());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public CreditCardTransaction read(JsonParser parser) throws IOException {
+            CreditCardTransaction transaction = new CreditCardTransaction();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "transaction_id" -> transaction.setTransactionId(readString(parser));
+                    case "client_id" -> transaction.setClientId(readString(parser));
+                    case "amount" -> transaction.setAmount(readDecimal(parser));
+                    case "timestamp" -> transaction.setTimestamp(parser.getValueAsLong());
+                    case "is_fraud" -> transaction.setFraud(parser.getValueAsBoolean());
+                    case "card_details" -> transaction.setCardDetails(readObject(parser, CARD_DETAILS));
+                    case "geolocation" -> transaction.setGeolocation(readObject(parser, GEOLOCATION));
+                    case "ip_data" -> transaction.setIpData(readObject(parser, IP_DATA));
+                    default -> parser.skipChildren();
+                }
+            }
+            return transaction;
+        }
+    };
+
+    public static final JacksonCodec<ProcessedClientCCTransaction> PROCESSED_CLIENT_CC_TRANSACTION = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, ProcessedClientCCTransaction value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "client_id", value.getClientId());
+            writeObject(generator, "current_client_c_c_transaction", CREDIT_CARD_TRANSACTION, value.getCurrentClientCCTransaction());
+            // como no Gson: histórico nulo omitido, vazio escrito como []
+            if (value.hasLastCCTransactions()) {
+                generator.writeArrayFieldStart("last_c_c_transactions");
+                for (CreditCardTransaction transaction : value.getLastCCTransactions()) {
+                    CREDIT_CARD_TRANSACTION.write(generator, transaction);
+                }
+                generator.writeEndArray();
+            }
+            writeDecimal(generator, "fraud_score", value.getFraudScore());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public ProcessedClientCCTransaction read(JsonParser parser) throws IOException {
+            ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "client_id" -> transaction.setClientId(readString(parser));
+                    case "current_client_c_c_transaction" -> transaction.setCurrentClientCCTransaction(readObject(parser, CREDIT_CARD_TRANSACTION));
+                    case "last_c_c_transactions" -> transaction.setLastCCTransactions(readHistory(parser));
+                    case "fraud_score" -> transaction.setFraudScore(readDecimal(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return transaction;
+        }
+
+        private LinkedHashSet<CreditCardTransaction> readHistory(JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            LinkedHashSet<CreditCardTransaction> history = new LinkedHashSet<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                history.add(CREDIT_CARD_TRANSACTION.read(parser));
+            }
+            return history;
+        }
+    };
+
+    public static final JacksonCodec<CCTransactionFootprint> CC_TRANSACTION_FOOTPRINT = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, CCTransactionFootprint value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "transaction_id", value.getTransactionId());
+            generator.writeNumberField("timestamp", value.getTimestamp());
+            writeDecimal(generator, "amount", value.getAmount());
+            if (value.getLatitude() != null) {
+                generator.writeNumberField("latitude", value.getLatitude());
+            }
+            if (value.getLongitude() != null) {
+                generator.writeNumberField("longitude", value.getLongitude());
+            }
+            writeString(generator, "public_ip_address", value.getPublicIpAddress());
+            writeString(generator, "card_id", value.getCardId());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public CCTransactionFootprint read(JsonParser parser) throws IOException {
+            CCTransactionFootprint footprint = new CCTransactionFootprint();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "transaction_id" -> footprint.setTransactionId(readString(parser));
+                    case "timestamp" -> footprint.setTimestamp(parser.getValueAsLong());
+                    case "amount" -> footprint.setAmount(readDecimal(parser));
+                    case "latitude" -> footprint.setLatitude(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble());
+                    case "longitude" -> footprint.setLongitude(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsDouble());
+                    case "public_ip_address" -> footprint.setPublicIpAddress(readString(parser));
+                    case "card_id" -> footprint.setCardId(readString(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return footprint;
+        }
+    };
+
+    public static final JacksonCodec<FraudAggregate> FRAUD_AGGREGATE = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, FraudAggregate value) throws IOException {
+            generator.writeStartObject();
+            writeObject(generator, "transaction", PROCESSED_CLIENT_CC_TRANSACTION, value.getTransaction());
+            generator.writeNumberField("received_results", value.getReceivedResults());
+            generator.writeNumberField("deadline", value.getDeadline());
+            generator.writeBooleanField("emitted", value.isEmitted());
+            generator.writeBooleanField("dirty", value.isDirty());
+            generator.writeNumberField("fired_rules", value.getFiredRules());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public FraudAggregate read(JsonParser parser) throws IOException {
+            FraudAggregate aggregate = new FraudAggregate();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "transaction" -> aggregate.setTransaction(readObject(parser, PROCESSED_CLIENT_CC_TRANSACTION));
+                    case "received_results" -> aggregate.setReceivedResults(parser.getValueAsInt());
+                    case "deadline" -> aggregate.setDeadline(parser.getValueAsLong());
+                    case "emitted" -> aggregate.setEmitted(parser.getValueAsBoolean());
+                    case "dirty" -> aggregate.setDirty(parser.getValueAsBoolean());
+                    case "fired_rules" -> aggregate.setFiredRules(parser.getValueAsInt());
+                    default -> parser.skipChildren();
+                }
+            }
+            return aggregate;
+        }
+    };
+
+    public static final JacksonCodec<RuleResult> RULE_RESULT = new JacksonCodec<>() {
+        @Override
+        public void write(JsonGenerator generator, RuleResult value) throws IOException {
+            generator.writeStartObject();
+            writeString(generator, "transaction_id", value.getTransactionId());
+            writeString(generator, "client_id", value.getClientId());
+            generator.writeNumberField("rule", value.getRule());
+            generator.writeNumberField("fraud_score_thousandths", value.getFraudScoreThousandths());
+            generator.writeNumberField("timestamp", value.getTimestamp());
+            writeObject(generator, "transaction", PROCESSED_CLIENT_CC_TRANSACTION, value.getTransaction());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public RuleResult read(JsonParser parser) throws IOException {
+            RuleResult result = new RuleResult();
+            while (nextField(parser)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "transaction_id" -> result.setTransactionId(readString(parser));
+                    case "client_id" -> result.setClientId(readString(parser));
+                    case "rule" -> result.setRule(parser.getValueAsInt());
+                    case "fraud_score_thousandths" -> result.setFraudScoreThousandths(parser.getValueAsLong());
+                    case "timestamp" -> result.setTimestamp(parser.getValueAsLong());
+                    case "transaction" -> result.setTransaction(readObject(parser, PROCESSED_CLIENT_CC_TRANSACTION));
+                    default -> parser.skipChildren();
+                }
+            }
+            return result;
+        }
+    };
+
+    private static final Map<Class<?>, JacksonCodec<?>> CODECS = Map.of(
+            CardDetails.class, CARD_DETAILS,
+            Geolocation.class, GEOLOCATION,
+            IpData.class, IP_DATA,
+            CreditCardTransaction.class, CREDIT_CARD_TRANSACTION,
+            ProcessedClientCCTransaction.class, PROCESSED_CLIENT_CC_TRANSACTION,
+            CCTransactionFootprint.class, CC_TRANSACTION_FOOTPRINT,
+            FraudAggregate.class, FRAUD_AGGREGATE,
+            RuleResult.class, RULE_RESULT
+    );
+
+    @SuppressWarnings("unchecked")
+    public static <T> JacksonCodec<T> forClass(Class<T> clazz) {
+        JacksonCodec<T> codec = (JacksonCodec<T>) CODECS.get(clazz);
+        if (codec == null) {
+            throw new IllegalArgumentException("Sem codec Jackson para " + clazz.getName());
+        }
+        return codec;
+    }
+
+    // ---------------- helpers ----------------
+
+    private static boolean nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            return true;
+        }
+        if (token == JsonToken.END_OBJECT) {
+            return false;
+        }
+        throw new IllegalArgumentException("JSON inválido: esperado nome de campo, encontrado " + token);
+    }
+
+    private static void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator generator, String field, BigDecimal value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(field);
+            generator.writeNumber(value);
+        }
+    }
+
+    private static <T> void writeObject(JsonGenerator generator, String field, JacksonCodec<T> codec, T value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(field);
+            codec.write(generator, value);
+        }
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        // Gson aceita números entre aspas; mantemos a mesma tolerância
+        return token == JsonToken.VALUE_STRING ? new BigDecimal(parser.getText()) : parser.getDecimalValue();
+    }
+
+    private static <T> T readObject(JsonParser parser, JacksonCodec<T> codec) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : codec.read(parser);
+    }
+}
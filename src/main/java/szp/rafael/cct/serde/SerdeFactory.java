@@ -1,10 +1,23 @@
 package szp.rafael.cct.serde;
 
+import org.apache.kafka.common.serialization.Serde;
+
 public class SerdeFactory<T> {
 
     public JSONSerdes<T> createSerde(Class<T> clazz){
         return new JSONSerdes<>(clazz);
     }
 
-}
+    public Serde<T> createSerde(Class<T> clazz, SerdeFormat format){
+        switch (format) {
+            case BINARY:
+                return new BinarySerdes<>(clazz);
+            case JACKSON:
+                return new JacksonJSONSerdes<>(clazz);
+            case JSON:
+            default:
+                return createSerde(clazz);
+        }
+    }
 
+}
@@ -0,0 +1,16 @@
+package szp.rafael.cct.serde;
+
+/**
+ * Formatos de serialização disponíveis no {@link SerdeFactory}.
+ */
+public enum SerdeFormat {
+
+    /** JSON snake_case via Gson (formato original, legível nos tópicos). */
+    JSON,
+
+    /** JSON no mesmo formato do Gson, lido/escrito direto em bytes pelo streaming API do Jackson ({@link JacksonJSONSerdes}). */
+    JACKSON,
+
+    /** Binário compacto e versionado ({@link BinarySerdes}), sem nomes de campos no payload. */
+    BINARY
+}
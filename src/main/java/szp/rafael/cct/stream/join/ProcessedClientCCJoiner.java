@@ -11,7 +11,7 @@ public class ProcessedClientCCJoiner implements ValueJoiner<ProcessedClientCCTra
     @Override
     public ProcessedClientCCTransaction apply(ProcessedClientCCTransaction left, ProcessedClientCCTransaction right) {
         ProcessedClientCCTransaction joined = new ProcessedClientCCTransaction(left.getClientId(),left.getCurrentClientCCTransaction(),new LinkedHashSet<>());
-        joined.setFraudScore(left.getFraudScore().add(right.getFraudScore()));
+        joined.setFraudScoreThousandths(left.getFraudScoreThousandths() + right.getFraudScoreThousandths());
         joined.getLastCCTransactions().addAll(right.getLastCCTransactions());
         return joined;
     }
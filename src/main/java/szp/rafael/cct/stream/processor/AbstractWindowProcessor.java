@@ -1,30 +1,34 @@
 package szp.rafael.cct.stream.processor;
 
-import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
 import org.apache.kafka.streams.processor.api.Processor;
 import org.apache.kafka.streams.processor.api.ProcessorContext;
 import org.apache.kafka.streams.processor.api.ProcessorSupplier;
 import org.apache.kafka.streams.processor.api.Record;
 import org.apache.kafka.streams.state.WindowStore;
-import org.apache.kafka.streams.state.WindowStoreIterator;
 import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.utils.FixedPoint;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.LinkedHashSet;
 
 public abstract class AbstractWindowProcessor implements ProcessorSupplier<String, CreditCardTransaction,String, ProcessedClientCCTransaction> {
 
+    public static final Duration WINDOW_SIZE = Duration.ofMinutes(30);
+
     public abstract EvaluationType evaluate(ProcessedClientCCTransaction transaction);
     public abstract double getFraudScore();
+    public abstract FraudRule getRule();
 
     public String storeName;
     Logger logger;
-    private final Duration windowSize = Duration.ofMinutes(30);
+    private final Duration windowSize = WINDOW_SIZE;
 
 
     public AbstractWindowProcessor(String storeName) {
@@ -32,6 +36,13 @@ public abstract class AbstractWindowProcessor implements ProcessorSupplier<Strin
         logger = getLogger();
     }
 
+    /**
+     * Score da regra em milésimos.
+     */
+    public long getFraudScoreThousandths() {
+        return FixedPoint.toThousandths(getFraudScore());
+    }
+
     public Logger getLogger() {
         if (logger == null) {
             logger = org.slf4j.LoggerFactory.getLogger(this.getClass());
@@ -39,6 +50,55 @@ public abstract class AbstractWindowProcessor implements ProcessorSupplier<Strin
         return logger;
     }
 
+    /**
+     * Avalia a regra a partir do contexto. Por padrão usa o histórico da janela; regras que
+     * conseguem decidir a partir de um estado incremental sobrescrevem este método.
+     */
+    public EvaluationType evaluate(EvaluationContext context) {
+        return evaluate(context.getHistory());
+    }
+
+    /**
+     * Avalia a regra sobre um histórico já montado e devolve uma cópia com o score desta regra.
+     * A entrada não é alterada, pois o mesmo histórico pode ser compartilhado entre várias regras.
+     */
+    public ProcessedClientCCTransaction score(ProcessedClientCCTransaction history) {
+        ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(history.getClientId(), history.getCurrentClientCCTransaction(), history.getLastCCTransactions());
+        transaction.setFraudScoreThousandths(history.getFraudScoreThousandths());
+        EvaluationType evaluation = evaluate(transaction);
+        if (evaluation == EvaluationType.FRAUD) {
+            transaction.setFraudScoreThousandths(transaction.getFraudScoreThousandths() + getFraudScoreThousandths());
+        }
+        return transaction;
+    }
+
+    /**
+     * Aplica {@link #score(ProcessedClientCCTransaction)} sobre um histórico já montado (store compartilhada),
+     * gravando os mesmos headers de avaliação que o processador com store própria.
+     */
+    public FixedKeyProcessorSupplier<String, ProcessedClientCCTransaction, ProcessedClientCCTransaction> scoring() {
+        return () -> new FixedKeyProcessor<String, ProcessedClientCCTransaction, ProcessedClientCCTransaction>() {
+
+            private FixedKeyProcessorContext<String, ProcessedClientCCTransaction> context;
+
+            @Override
+            public void init(FixedKeyProcessorContext<String, ProcessedClientCCTransaction> context) {
+                this.context = context;
+            }
+
+            @Override
+            public void process(FixedKeyRecord<String, ProcessedClientCCTransaction> record) {
+                ProcessedClientCCTransaction history = record.value();
+                ProcessedClientCCTransaction transaction = score(history);
+                int firedRules = transaction.getFraudScoreThousandths() != history.getFraudScoreThousandths() ? getRule().mask() : 0;
+                // o mesmo registro de histórico segue para as 5 regras: cada uma grava os seus headers
+                FixedKeyRecord<String, ProcessedClientCCTransaction> fwd = record.withValue(transaction).withHeaders(new RecordHeaders());
+                FraudHeaders.write(fwd.headers(), transaction.getFraudScoreThousandths(), firedRules);
+                context.forward(fwd);
+            }
+        };
+    }
+
 
     @Override
     public Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction> get() {
@@ -46,7 +106,7 @@ public abstract class AbstractWindowProcessor implements ProcessorSupplier<Strin
         return new Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction>() {
 
             private ProcessorContext<String, ProcessedClientCCTransaction> context;
-            private WindowStore<String, ProcessedClientCCTransaction> transactionStore;
+            private WindowStore<String, CCTransactionFootprint> transactionStore;
 
             @Override
             public void init(ProcessorContext<String, ProcessedClientCCTransaction> context) {
@@ -59,30 +119,16 @@ public abstract class AbstractWindowProcessor implements ProcessorSupplier<Strin
 
                 String clientId = record.key();
                 CreditCardTransaction clientTransaction = record.value();
-                Instant windowStart = Instant.ofEpochMilli(record.timestamp()).minus(windowSize);
-
-                ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(record.value().getClientId(), record.value(), new LinkedHashSet<>());
-
-                //Aqui estou buscando as transações 30min antes da transação atual
-                //Será registrado na store todas as transações dentro do range de 30min
-                try(WindowStoreIterator<ProcessedClientCCTransaction> iterator = transactionStore.fetch(clientId, windowStart.toEpochMilli(),clientTransaction.getTimestamp())){
-                    logger.debug("loop --------------------------------------------------------------->\n");
-                    while (iterator.hasNext()) {
-                        KeyValue<Long, ProcessedClientCCTransaction> next = iterator.next();
-                        logger.debug("\n\ncurrent {}",clientTransaction.toJSONString());
-                        logger.debug("fetch   {}\n\n",next.value.toJSONString());
-                        transaction.getLastCCTransactions().add(transaction.getCurrentClientCCTransaction());
-                        transaction.getLastCCTransactions().add(next.value.getCurrentClientCCTransaction());
-                    }
-                }
-
-                EvaluationType evaluation = evaluate(transaction);
-                if (evaluation == EvaluationType.FRAUD) {
-                    transaction.setFraudScore(transaction.getFraudScore().add(BigDecimal.valueOf(getFraudScore())).setScale(3, RoundingMode.HALF_EVEN));
-                }
+
+                ProcessedClientCCTransaction history = ClientHistory.fetch(transactionStore, clientId, record.timestamp(), clientTransaction, windowSize);
+                ProcessedClientCCTransaction transaction = score(history);
+                // score() só soma o score desta regra quando ela dispara
+                int firedRules = transaction.getFraudScoreThousandths() != history.getFraudScoreThousandths() ? getRule().mask() : 0;
+
                 Record<String, ProcessedClientCCTransaction> fwd = new Record<String, ProcessedClientCCTransaction>(record.key(),transaction, record.value().getTimestamp());
+                FraudHeaders.write(fwd.headers(), transaction.getFraudScoreThousandths(), firedRules);
 
-                transactionStore.put(record.key(), transaction,clientTransaction.getTimestamp());
+                ClientHistory.append(transactionStore, record.key(), clientTransaction);
                 logger.debug("forwarding {}",fwd.value().getCurrentClientCCTransaction().getTransactionId());
 
                 context.forward(fwd);
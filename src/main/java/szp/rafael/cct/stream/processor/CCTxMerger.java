@@ -1,69 +1,281 @@
 package szp.rafael.cct.stream.processor;
 
 import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.processor.PunctuationType;
 import org.apache.kafka.streams.processor.api.Processor;
 import org.apache.kafka.streams.processor.api.ProcessorContext;
 import org.apache.kafka.streams.processor.api.Record;
 import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.KeyValueStore;
+import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.FraudAggregate;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
 
-import java.math.BigDecimal;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Soma os scores dos resultados de regra de cada transação (chave = transactionId) e propaga o score
+ * acumulado para as transações do histórico que ainda estão na store.
+ *
+ * Por padrão (expectedResults = 0) emite tudo o que está na store a cada {@link #GRACE_WINDOW_SIZE_MINUTES}
+ * minutos de wall-clock. Com expectedResults > 0 a decisão sai assim que o último resultado esperado chega;
+ * o agregado continua na store até o deadline para receber contaminações, que são reemitidas na próxima
+ * verificação, e transações com resultados faltando são emitidas (parciais) ao expirar.
+ *
+ * Nesse modo um índice secundário (deadlineIndexStore, chave = instante zero-padded + ":" + transactionId)
+ * guarda quando cada agregado precisa ser revisto, e a verificação faz range scan só do que está vencido.
+ *
+ * A propagação para o histórico não toca a store de agregados a cada resultado: o último score propagado para
+ * cada transactionId vai para a pendingScoreStore (com cache e changelog, as escritas repetidas da mesma chave se
+ * fundem no cache até o commit) e é aplicado de uma vez a cada commit.interval.ms, antes de qualquer emissão,
+ * ao passar de {@link #MAX_PENDING_SCORES} propagações e no close. Como o cache é descarregado no changelog antes
+ * do commit dos offsets, uma propagação ainda não aplicada sobrevive a uma queda e é aplicada pela instância que
+ * restaurar a store.
+ *
+ * Resultados compactos (sem transação atual, ver {@link RuleResultDecoder}) só somam o score: a transação e o
+ * histórico vêm do resultado que os carrega, esteja ele já na store ou chegando depois. Enquanto esse resultado
+ * não chega o agregado não é emitido; se ele não chegar até o deadline, a decisão sai assim mesmo, só com o
+ * clientId, a chave e o score acumulado.
+ */
 public class CCTxMerger implements Processor<String, ProcessedClientCCTransaction,String, ProcessedClientCCTransaction> {
 
+    static Logger logger = org.slf4j.LoggerFactory.getLogger(CCTxMerger.class);
+
     public static final int GRACE_WINDOW_SIZE_MINUTES = 5; //quanto tempo iremos aguardar processamentos anteriores para que possamos capturar os scores de fraude
-    private KeyValueStore<String,ProcessedClientCCTransaction> store;
+    public static final Duration COMPLETION_CHECK_INTERVAL = Duration.ofSeconds(5);
+    public static final int MAX_PENDING_SCORES = 10_000;
+    private static final int DEADLINE_DIGITS = 19;
+    private static final long DEFAULT_COMMIT_INTERVAL_MS = 30_000L;
+    private KeyValueStore<String, FraudAggregate> store;
+    private KeyValueStore<String, Long> pendingScores;
+    private int pendingPuts;
+    private KeyValueStore<String, String> deadlineIndex;
     private ProcessorContext<String, ProcessedClientCCTransaction> context;
     private final String fraudAggStore;
+    private final String pendingScoreStore;
+    private final String deadlineIndexStore;
+    private final int expectedResults;
+
+    /**
+     * @param pendingScoreStore KeyValueStore&lt;String, Long&gt; das propagações ainda não aplicadas
+     */
+    public CCTxMerger(String fraudAggStore, String pendingScoreStore) {
+        this(fraudAggStore, pendingScoreStore, null, 0);
+    }
 
-    public CCTxMerger(String fraudAggStore) {
+    /**
+     * @param pendingScoreStore KeyValueStore&lt;String, Long&gt; das propagações ainda não aplicadas
+     * @param deadlineIndexStore KeyValueStore&lt;String, String&gt; do índice de vencimentos
+     * @param expectedResults quantos resultados de regra chegam por transação
+     */
+    public CCTxMerger(String fraudAggStore, String pendingScoreStore, String deadlineIndexStore, int expectedResults) {
         this.fraudAggStore = fraudAggStore;
+        this.pendingScoreStore = pendingScoreStore;
+        this.deadlineIndexStore = deadlineIndexStore;
+        this.expectedResults = expectedResults;
     }
 
     @Override
     public void init(ProcessorContext<String, ProcessedClientCCTransaction> context) {
         this.context = context;
         store = context.getStateStore(fraudAggStore);
+        pendingScores = context.getStateStore(pendingScoreStore);
         this.context.schedule(
-                Duration.ofMinutes(GRACE_WINDOW_SIZE_MINUTES),
+                Duration.ofMillis(commitIntervalMs(context)),
                 PunctuationType.WALL_CLOCK_TIME,
-                timestamp -> punctuate()
+                timestamp -> flushPendingScores()
         );
+        if (isEagerCompletion()) {
+            deadlineIndex = context.getStateStore(deadlineIndexStore);
+            this.context.schedule(
+                    COMPLETION_CHECK_INTERVAL,
+                    PunctuationType.WALL_CLOCK_TIME,
+                    this::expire
+            );
+        } else {
+            this.context.schedule(
+                    Duration.ofMinutes(GRACE_WINDOW_SIZE_MINUTES),
+                    PunctuationType.WALL_CLOCK_TIME,
+                    timestamp -> punctuate()
+            );
+        }
+    }
+
+    private boolean isEagerCompletion() {
+        return expectedResults > 0;
+    }
+
+    private static long commitIntervalMs(ProcessorContext<?, ?> context) {
+        Object commitInterval = context.appConfigs().get(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG);
+        return commitInterval == null ? DEFAULT_COMMIT_INTERVAL_MS : Long.parseLong(commitInterval.toString());
     }
 
     @Override
     public void process(Record<String, ProcessedClientCCTransaction> record) {
-        BigDecimal fraudScore = record.value().getFraudScore();
-        ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(record.value().getClientId(), record.value().getCurrentClientCCTransaction(), record.value().getLastCCTransactions());
-        transaction.setFraudScore(fraudScore);
-        ProcessedClientCCTransaction current = store.get(record.key());
-        if (current != null) {
-            BigDecimal newScore = transaction.getFraudScore().add(current.getFraudScore());
-            transaction.setFraudScore(newScore);
-            transaction.getLastCCTransactions().forEach(tx-> updateRelatedTxFraudScore(tx.getTransactionId(), newScore));
+        long fraudScore = record.value().getFraudScoreThousandths();
+        FraudAggregate aggregate = store.get(record.key());
+        // propagação pendente para esta transação: se ela ainda não existia na store quando foi propagada, é descartada
+        // get antes do delete: na store com changelog o delete grava um tombstone mesmo sem a chave
+        Long pendingScore = pendingScores.get(record.key());
+        if (pendingScore != null) {
+            pendingScores.delete(record.key());
+            if (aggregate != null) {
+                applyRelatedTxFraudScore(record.key(), aggregate, pendingScore);
+            }
+        }
+        ProcessedClientCCTransaction incoming = record.value();
+        if (incoming.getCurrentClientCCTransaction() == null && aggregate != null) {
+            incoming = aggregate.getTransaction();
+        }
+        ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(incoming.getClientId(), incoming.getCurrentClientCCTransaction(), incoming.getLastCCTransactions());
+        transaction.setFraudScoreThousandths(fraudScore);
+        if (aggregate != null) {
+            long newScore = transaction.getFraudScoreThousandths() + aggregate.getTransaction().getFraudScoreThousandths();
+            transaction.setFraudScoreThousandths(newScore);
+            // a própria transação recebe o score pelo put abaixo, sem passar pela store de pendências
+            transaction.getLastCCTransactions().stream()
+                    .filter(tx -> !tx.getTransactionId().equals(record.key()))
+                    .forEach(tx -> updateRelatedTxFraudScore(tx.getTransactionId(), newScore));
+        } else {
+            aggregate = new FraudAggregate();
+            aggregate.setDeadline(context.currentSystemTimeMs() + Duration.ofMinutes(GRACE_WINDOW_SIZE_MINUTES).toMillis());
+            if (isEagerCompletion()) {
+                deadlineIndex.put(deadlineKey(aggregate.getDeadline(), record.key()), record.key());
+            }
+        }
+        aggregate.setTransaction(transaction);
+        aggregate.setReceivedResults(aggregate.getReceivedResults() + 1);
+        aggregate.setFiredRules(aggregate.getFiredRules() | FraudHeaders.firedRules(record.headers()));
+
+        if (isEagerCompletion() && !aggregate.isEmitted() && aggregate.getReceivedResults() >= expectedResults) {
+            forward(record.key(), aggregate, false);
+        }
+        store.put(record.key(), aggregate);
+        if (pendingPuts >= MAX_PENDING_SCORES) {
+            flushPendingScores();
         }
-        store.put(record.key(),transaction);
     }
 
     public void punctuate(){
-        try(KeyValueIterator<String, ProcessedClientCCTransaction> iterator = store.all()){
+        flushPendingScores();
+        long now = context.currentSystemTimeMs();
+        try(KeyValueIterator<String, FraudAggregate> iterator = store.all()){
             while (iterator.hasNext()){
-                KeyValue<String, ProcessedClientCCTransaction> next = iterator.next();
-                context.forward(new Record<>(next.key, next.value, next.value.getCurrentClientCCTransaction().getTimestamp()));
-                store.delete(next.key);
+                KeyValue<String, FraudAggregate> next = iterator.next();
+                // sem o resultado que carrega a transação, o agregado espera até o deadline
+                if (forward(next.key, next.value, next.value.getDeadline() <= now)) {
+                    store.delete(next.key);
+                }
             }
         }
     }
 
-    public void updateRelatedTxFraudScore(String key, BigDecimal newScore){
-        ProcessedClientCCTransaction current = store.get(key);
-        if(current !=null){
-            ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(current.getClientId(), current.getCurrentClientCCTransaction(), current.getLastCCTransactions());
-            transaction.setFraudScore(transaction.getFraudScore().add(newScore));
-            store.put(key, transaction);
+    /**
+     * Conclusão antecipada: reemite as decisões contaminadas depois da emissão e descarta os agregados vencidos,
+     * emitindo os que não chegaram a receber todos os resultados.
+     */
+    public void expire(long now){
+        flushPendingScores();
+        // ";" vem logo depois de ":" e fecha o range em todas as chaves com instante <= now
+        try(KeyValueIterator<String, String> iterator = deadlineIndex.range(deadlineKey(0, ""), formatDeadline(now) + ";")){
+            while (iterator.hasNext()){
+                KeyValue<String, String> next = iterator.next();
+                deadlineIndex.delete(next.key);
+                FraudAggregate aggregate = store.get(next.value);
+                if (aggregate == null) {
+                    continue;
+                }
+                boolean expired = aggregate.getDeadline() <= now;
+                if (aggregate.isDirty() || (expired && !aggregate.isEmitted())) {
+                    forward(next.value, aggregate, expired);
+                    if (!expired) {
+                        store.put(next.value, aggregate);
+                    }
+                }
+                if (expired) {
+                    store.delete(next.value);
+                }
+            }
         }
     }
+
+    static String deadlineKey(long deadline, String transactionId) {
+        return formatDeadline(deadline) + ":" + transactionId;
+    }
+
+    private static String formatDeadline(long deadline) {
+        String digits = Long.toString(deadline);
+        return "0".repeat(DEADLINE_DIGITS - digits.length()) + digits;
+    }
+
+    /**
+     * @param expired o deadline do agregado já passou: sem o resultado que carrega a transação, emite uma decisão
+     *                parcial em vez de continuar esperando
+     * @return false se a decisão ficou para depois (resultado que carrega a transação ainda não chegou)
+     */
+    private boolean forward(String key, FraudAggregate aggregate, boolean expired) {
+        ProcessedClientCCTransaction transaction = aggregate.getTransaction();
+        long timestamp;
+        if (transaction.getCurrentClientCCTransaction() != null) {
+            timestamp = transaction.getCurrentClientCCTransaction().getTimestamp();
+        } else if (expired) {
+            logger.warn("Transação {} sem o resultado que carrega a transação/histórico até o deadline; emitindo decisão parcial", key);
+            timestamp = context.currentStreamTimeMs();
+        } else {
+            return false;
+        }
+        Record<String, ProcessedClientCCTransaction> fwd = new Record<>(key, transaction, timestamp);
+        FraudHeaders.write(fwd.headers(), transaction.getFraudScoreThousandths(), aggregate.getFiredRules());
+        context.forward(fwd);
+        aggregate.setEmitted(true);
+        aggregate.setDirty(false);
+        return true;
+    }
+
+    /**
+     * Registra o score propagado para uma transação do histórico; só o último vale, como no put direto.
+     */
+    public void updateRelatedTxFraudScore(String key, long newScore){
+        pendingScores.put(key, newScore);
+        pendingPuts++;
+    }
+
+    /**
+     * Aplica na store, com um get e um put por transactionId, tudo o que foi propagado desde o último flush.
+     */
+    public void flushPendingScores(){
+        List<KeyValue<String, Long>> pending = new ArrayList<>();
+        try(KeyValueIterator<String, Long> iterator = pendingScores.all()){
+            iterator.forEachRemaining(pending::add);
+        }
+        for (KeyValue<String, Long> next : pending) {
+            FraudAggregate current = store.get(next.key);
+            if(current !=null){
+                applyRelatedTxFraudScore(next.key, current, next.value);
+                store.put(next.key, current);
+            }
+            pendingScores.delete(next.key);
+        }
+        pendingPuts = 0;
+    }
+
+    private void applyRelatedTxFraudScore(String key, FraudAggregate current, long newScore){
+        ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(current.getTransaction().getClientId(), current.getTransaction().getCurrentClientCCTransaction(), current.getTransaction().getLastCCTransactions());
+        transaction.setFraudScoreThousandths(transaction.getFraudScoreThousandths() + newScore);
+        // já emitida: a decisão atualizada sai na próxima verificação (upsert por transactionId)
+        if (current.isEmitted() && !current.isDirty() && transaction.getFraudScoreThousandths() != current.getTransaction().getFraudScoreThousandths()) {
+            current.setDirty(true);
+            // revisto já na próxima verificação, antes do deadline
+            deadlineIndex.put(deadlineKey(context.currentSystemTimeMs(), key), key);
+        }
+        current.setTransaction(transaction);
+    }
+
+    @Override
+    public void close() {
+        flushPendingScores();
+    }
 }
@@ -0,0 +1,64 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+
+/**
+ * Leitura e escrita do histórico de transações de um cliente em uma WindowStore.
+ *
+ * Centraliza o fetch da janela para que tanto os processadores por regra quanto o
+ * processador de histórico compartilhado montem o histórico exatamente da mesma forma.
+ * A store guarda apenas a {@link CCTransactionFootprint} de cada transação; o histórico
+ * é reconstruído a partir do fetch.
+ */
+public final class ClientHistory {
+
+    private ClientHistory() {}
+
+    /**
+     * Busca as transações do cliente dentro da janela que termina na transação atual.
+     *
+     * @param store store de histórico
+     * @param clientId chave do cliente
+     * @param recordTimestamp timestamp do registro (início da janela = recordTimestamp - windowSize)
+     * @param current transação atual
+     * @param windowSize tamanho da janela de análise
+     * @return transação processada (sem score) contendo o histórico encontrado
+     */
+    public static ProcessedClientCCTransaction fetch(WindowStore<String, CCTransactionFootprint> store,
+                                                     String clientId,
+                                                     long recordTimestamp,
+                                                     CreditCardTransaction current,
+                                                     Duration windowSize) {
+        Instant windowStart = Instant.ofEpochMilli(recordTimestamp).minus(windowSize);
+        ProcessedClientCCTransaction transaction = new ProcessedClientCCTransaction(current.getClientId(), current, new LinkedHashSet<>());
+
+        //Aqui estou buscando as transações 30min antes da transação atual
+        //Será registrado na store todas as transações dentro do range de 30min
+        try (WindowStoreIterator<CCTransactionFootprint> iterator = store.fetch(clientId, windowStart.toEpochMilli(), current.getTimestamp())) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, CCTransactionFootprint> next = iterator.next();
+                transaction.getLastCCTransactions().add(transaction.getCurrentClientCCTransaction());
+                transaction.getLastCCTransactions().add(next.value.toCreditCardTransaction(current.getClientId()));
+            }
+        }
+        return transaction;
+    }
+
+    /**
+     * Registra a transação atual no histórico do cliente.
+     */
+    public static void append(WindowStore<String, CCTransactionFootprint> store,
+                              String clientId,
+                              CreditCardTransaction transaction) {
+        store.put(clientId, CCTransactionFootprint.from(transaction), transaction.getTimestamp());
+    }
+}
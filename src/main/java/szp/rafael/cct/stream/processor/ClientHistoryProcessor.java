@@ -0,0 +1,48 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.WindowStore;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+
+/**
+ * Mantém uma única WindowStore de histórico por cliente.
+ *
+ * Cada transação é buscada e gravada uma única vez; o histórico montado é repassado (sem score)
+ * para que todas as regras sejam avaliadas sobre ele via {@link AbstractWindowProcessor#score}.
+ */
+public class ClientHistoryProcessor implements ProcessorSupplier<String, CreditCardTransaction, String, ProcessedClientCCTransaction> {
+
+    private final String storeName;
+
+    public ClientHistoryProcessor(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Override
+    public Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction> get() {
+        return new Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction>() {
+
+            private ProcessorContext<String, ProcessedClientCCTransaction> context;
+            private WindowStore<String, CCTransactionFootprint> historyStore;
+
+            @Override
+            public void init(ProcessorContext<String, ProcessedClientCCTransaction> context) {
+                this.context = context;
+                historyStore = context.getStateStore(storeName);
+            }
+
+            @Override
+            public void process(Record<String, CreditCardTransaction> record) {
+                CreditCardTransaction clientTransaction = record.value();
+                ProcessedClientCCTransaction history = ClientHistory.fetch(historyStore, record.key(), record.timestamp(), clientTransaction, AbstractWindowProcessor.WINDOW_SIZE);
+                ClientHistory.append(historyStore, record.key(), clientTransaction);
+                context.forward(new Record<>(record.key(), history, clientTransaction.getTimestamp()));
+            }
+        };
+    }
+}
@@ -0,0 +1,252 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.ProcessorSupplier;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.utils.IpClassifier;
+import szp.rafael.cct.utils.IpLiteral;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Avalia todas as regras registradas em uma única passada sobre um único fetch de histórico.
+ *
+ * Emite um registro por transação, já chaveado pelo transactionId e com o score somado de todas as regras,
+ * dispensando o merge, o repartition por transactionId e o {@link CCTxMerger}.
+ *
+ * Opcionalmente mantém um {@link RollingWindowAggregate} por cliente (KeyValueStore); as regras que sabem
+ * usá-lo (velocidade e alta frequência) passam a decidir em tempo constante, sem varrer o histórico, e as
+ * regras geográfica e de padrão decidem pelos limites do agregado, varrendo o histórico só quando eles não
+ * bastam. O histórico em si pode ficar na WindowStore ou em um {@link ClientHistoryBuffer} por cliente.
+ * Com {@link DecayingCounters}, velocidade e alta frequência passam a pontuar por somas e contagens decaídas
+ * em vez da janela.
+ *
+ * Nota: como a decisão é emitida imediatamente, não há contaminação retroativa de transações anteriores
+ * (essa é feita pelo {@link CCTxMerger} enquanto a transação aguarda na fraud-agg-store).
+ */
+public class CompositeWindowCheck implements ProcessorSupplier<String, CreditCardTransaction, String, ProcessedClientCCTransaction> {
+
+    static Logger logger = org.slf4j.LoggerFactory.getLogger(CompositeWindowCheck.class);
+
+    private final String storeName;
+    private final List<AbstractWindowProcessor> rules;
+    private String rollingAggregateStoreName;
+    private boolean distinctIpCounting;
+    private String historyBufferStoreName;
+    private String decayingCountersStoreName;
+    private Duration[] decayingHalfLives = DecayingCounters.DEFAULT_HALF_LIVES;
+    private int historyBufferCapacity = ClientHistoryBuffer.DEFAULT_CAPACITY;
+    private final IpClassifier ipClassifier;
+
+    public CompositeWindowCheck(String storeName, List<AbstractWindowProcessor> rules) {
+        this.storeName = storeName;
+        this.rules = List.copyOf(rules);
+        // a flag de IP público gravada no buffer tem que seguir o mesmo classificador da regra de IP
+        this.ipClassifier = rules.stream()
+                .filter(MultipleIPWindowCheck.class::isInstance)
+                .map(rule -> ((MultipleIPWindowCheck) rule).getIpClassifier())
+                .findFirst()
+                .orElse(IpClassifier.specialRanges());
+    }
+
+    /**
+     * @param rollingAggregateStoreName KeyValueStore de {@link RollingWindowAggregate} por cliente
+     */
+    public CompositeWindowCheck withRollingAggregates(String rollingAggregateStoreName) {
+        this.rollingAggregateStoreName = rollingAggregateStoreName;
+        return this;
+    }
+
+    /**
+     * Mantém também um {@link szp.rafael.cct.stream.state.DistinctIpCounter} no agregado incremental, e a regra
+     * de IPs passa a contar IPs distintos em tempo constante. Só tem efeito com {@link #withRollingAggregates}.
+     */
+    public CompositeWindowCheck withDistinctIpCounting(boolean distinctIpCounting) {
+        this.distinctIpCounting = distinctIpCounting;
+        return this;
+    }
+
+    /**
+     * Troca a WindowStore de histórico por um {@link ClientHistoryBuffer} gravado como um único byte[]
+     * por cliente: um get pontual no lugar do iterator de range. Regras sem suporte ao buffer
+     * falham com IllegalStateException, já que não há histórico de objetos para buscar.
+     *
+     * @param historyBufferStoreName KeyValueStore de byte[] por cliente
+     */
+    public CompositeWindowCheck withHistoryBuffer(String historyBufferStoreName, int capacity) {
+        this.historyBufferStoreName = historyBufferStoreName;
+        this.historyBufferCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Modo alternativo de pontuação para velocidade e alta frequência: {@link DecayingCounters} por cliente,
+     * gravados como byte[]. Contadores gravados com outras meias-vidas recomeçam do zero.
+     *
+     * @param decayingCountersStoreName KeyValueStore de byte[] por cliente
+     */
+    public CompositeWindowCheck withDecayingCounters(String decayingCountersStoreName, Duration... halfLives) {
+        this.decayingCountersStoreName = decayingCountersStoreName;
+        this.decayingHalfLives = halfLives.clone();
+        return this;
+    }
+
+    /**
+     * Stores que devem ser conectadas ao processador.
+     */
+    public String[] getStateStoreNames() {
+        List<String> names = new ArrayList<>();
+        names.add(historyBufferStoreName != null ? historyBufferStoreName : storeName);
+        if (rollingAggregateStoreName != null) {
+            names.add(rollingAggregateStoreName);
+        }
+        if (decayingCountersStoreName != null) {
+            names.add(decayingCountersStoreName);
+        }
+        return names.toArray(String[]::new);
+    }
+
+    public List<AbstractWindowProcessor> getRules() {
+        return rules;
+    }
+
+    /**
+     * Avalia todas as regras sobre o histórico e devolve uma cópia com a soma dos scores.
+     */
+    public ProcessedClientCCTransaction evaluate(ProcessedClientCCTransaction history) {
+        return evaluate(EvaluationContext.of(history));
+    }
+
+    /**
+     * Avalia todas as regras sobre o contexto. O histórico só é anexado à saída se alguma regra precisou dele;
+     * as regras que dispararam ficam em {@link EvaluationContext#getFiredRules()}.
+     */
+    public ProcessedClientCCTransaction evaluate(EvaluationContext evaluationContext) {
+        long fraudScore = 0L;
+        for (AbstractWindowProcessor rule : rules) {
+            if (rule.evaluate(evaluationContext) == AbstractWindowProcessor.EvaluationType.FRAUD) {
+                evaluationContext.addFiredRule(rule.getRule());
+                fraudScore += rule.getFraudScoreThousandths();
+            }
+        }
+        CreditCardTransaction current = evaluationContext.getCurrent();
+        ProcessedClientCCTransaction transaction = evaluationContext.isHistoryLoaded()
+                ? new ProcessedClientCCTransaction(current.getClientId(), current, evaluationContext.getHistory().getLastCCTransactions())
+                : new ProcessedClientCCTransaction(current.getClientId(), current, new LinkedHashSet<>());
+        transaction.setFraudScoreThousandths(fraudScore);
+        return transaction;
+    }
+
+    @Override
+    public Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction> get() {
+        return new Processor<String, CreditCardTransaction, String, ProcessedClientCCTransaction>() {
+
+            private ProcessorContext<String, ProcessedClientCCTransaction> context;
+            private WindowStore<String, CCTransactionFootprint> historyStore;
+            private KeyValueStore<String, byte[]> historyBufferStore;
+            private KeyValueStore<String, RollingWindowAggregate> rollingAggregateStore;
+            private KeyValueStore<String, byte[]> decayingCountersStore;
+
+            @Override
+            public void init(ProcessorContext<String, ProcessedClientCCTransaction> context) {
+                this.context = context;
+                if (historyBufferStoreName != null) {
+                    historyBufferStore = context.getStateStore(historyBufferStoreName);
+                } else {
+                    historyStore = context.getStateStore(storeName);
+                }
+                if (rollingAggregateStoreName != null) {
+                    rollingAggregateStore = context.getStateStore(rollingAggregateStoreName);
+                }
+                if (decayingCountersStoreName != null) {
+                    decayingCountersStore = context.getStateStore(decayingCountersStoreName);
+                }
+            }
+
+            @Override
+            public void process(Record<String, CreditCardTransaction> record) {
+                String clientId = record.key();
+                CreditCardTransaction clientTransaction = record.value();
+                long windowStart = record.timestamp() - AbstractWindowProcessor.WINDOW_SIZE.toMillis();
+                EvaluationContext evaluationContext = new EvaluationContext(clientTransaction, windowStart, () -> {
+                    if (historyStore == null) {
+                        throw new IllegalStateException("Regra sem suporte ao ClientHistoryBuffer: " + storeName);
+                    }
+                    return ClientHistory.fetch(historyStore, clientId, record.timestamp(), clientTransaction, AbstractWindowProcessor.WINDOW_SIZE);
+                });
+
+                ClientHistoryBuffer historyBuffer = null;
+                if (historyBufferStore != null) {
+                    byte[] bytes = historyBufferStore.get(clientId);
+                    historyBuffer = bytes == null ? new ClientHistoryBuffer(historyBufferCapacity) : ClientHistoryBuffer.fromBytes(bytes);
+                    historyBuffer.evictBefore(windowStart);
+                    evaluationContext.withHistoryBuffer(historyBuffer);
+                }
+
+                RollingWindowAggregate rollingAggregate = null;
+                if (rollingAggregateStore != null) {
+                    rollingAggregate = rollingAggregateStore.get(clientId);
+                    if (rollingAggregate == null) {
+                        rollingAggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+                    }
+                    if (distinctIpCounting) {
+                        rollingAggregate.withDistinctIps();
+                    }
+                    evaluationContext.withRollingAggregate(rollingAggregate);
+                }
+
+                DecayingCounters decayingCounters = null;
+                if (decayingCountersStore != null) {
+                    byte[] bytes = decayingCountersStore.get(clientId);
+                    decayingCounters = bytes == null ? null : DecayingCounters.fromBytes(bytes);
+                    if (decayingCounters == null || !decayingCounters.hasHalfLives(decayingHalfLives)) {
+                        decayingCounters = new DecayingCounters(decayingHalfLives);
+                    }
+                    evaluationContext.withDecayingCounters(decayingCounters);
+                }
+
+                ProcessedClientCCTransaction transaction = evaluate(evaluationContext);
+
+                if (historyBuffer != null) {
+                    historyBuffer.add(clientTransaction, ipClassifier);
+                    historyBufferStore.put(clientId, historyBuffer.toBytes());
+                } else {
+                    ClientHistory.append(historyStore, clientId, clientTransaction);
+                }
+                if (rollingAggregate != null) {
+                    IpData ipData = clientTransaction.getIpData();
+                    IpLiteral address = ipData != null ? ipData.getParsedAddress() : null;
+                    Geolocation geolocation = clientTransaction.getGeolocation();
+                    rollingAggregate.add(clientTransaction.getTimestamp(), clientTransaction.getAmountInMinorUnits(),
+                            geolocation != null ? geolocation.getPoint() : null,
+                            ClientHistoryBuffer.ipKey(ipData), address != null && ipClassifier.isPublic(address));
+                    rollingAggregateStore.put(clientId, rollingAggregate);
+                }
+                if (decayingCounters != null) {
+                    decayingCounters.add(clientTransaction.getTimestamp(), clientTransaction.getAmountInMinorUnits());
+                    decayingCountersStore.put(clientId, decayingCounters.toBytes());
+                }
+
+                logger.debug("forwarding {} fs: {}", clientTransaction.getTransactionId(), transaction.getFraudScore());
+                Record<String, ProcessedClientCCTransaction> fwd = new Record<>(clientTransaction.getTransactionId(), transaction, clientTransaction.getTimestamp());
+                FraudHeaders.write(fwd.headers(), transaction.getFraudScoreThousandths(), evaluationContext.getFiredRules());
+                context.forward(fwd);
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package szp.rafael.cct.stream.processor;
+
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+
+import java.util.function.Supplier;
+
+/**
+ * Tudo o que uma regra pode consultar para avaliar a transação atual.
+ *
+ * O histórico da janela é buscado sob demanda (no máximo uma vez), de forma que regras que
+ * conseguem decidir a partir de um estado incremental não pagam o fetch da WindowStore.
+ */
+public class EvaluationContext {
+
+    private final CreditCardTransaction current;
+    private final long windowStart;
+    private final Supplier<ProcessedClientCCTransaction> historyLoader;
+    private ProcessedClientCCTransaction history;
+    private RollingWindowAggregate rollingAggregate;
+    private ClientHistoryBuffer historyBuffer;
+    private DecayingCounters decayingCounters;
+    private int firedRules;
+
+    public EvaluationContext(CreditCardTransaction current, long windowStart, Supplier<ProcessedClientCCTransaction> historyLoader) {
+        this.current = current;
+        this.windowStart = windowStart;
+        this.historyLoader = historyLoader;
+    }
+
+    /**
+     * Contexto para um histórico já montado.
+     */
+    public static EvaluationContext of(ProcessedClientCCTransaction history) {
+        CreditCardTransaction current = history.getCurrentClientCCTransaction();
+        EvaluationContext context = new EvaluationContext(current, current.getTimestamp() - AbstractWindowProcessor.WINDOW_SIZE.toMillis(), () -> history);
+        context.history = history;
+        return context;
+    }
+
+    public CreditCardTransaction getCurrent() {
+        return current;
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public long getWindowEnd() {
+        return current.getTimestamp();
+    }
+
+    /**
+     * Indica se o timestamp cai na janela de análise da transação atual.
+     */
+    public boolean isInWindow(long timestamp) {
+        return timestamp >= windowStart && timestamp <= getWindowEnd();
+    }
+
+    public ProcessedClientCCTransaction getHistory() {
+        if (history == null) {
+            history = historyLoader.get();
+        }
+        return history;
+    }
+
+    public boolean isHistoryLoaded() {
+        return history != null;
+    }
+
+    /**
+     * Agregado incremental da janela (somente transações anteriores à atual), ou null se não configurado.
+     */
+    public RollingWindowAggregate getRollingAggregate() {
+        return rollingAggregate;
+    }
+
+    public EvaluationContext withRollingAggregate(RollingWindowAggregate rollingAggregate) {
+        this.rollingAggregate = rollingAggregate;
+        return this;
+    }
+
+    /**
+     * Histórico primitivo do cliente (somente transações anteriores à atual), ou null se não configurado.
+     * Entradas fora da janela devem ser ignoradas com {@link #isInWindow(long)}.
+     */
+    public ClientHistoryBuffer getHistoryBuffer() {
+        return historyBuffer;
+    }
+
+    public EvaluationContext withHistoryBuffer(ClientHistoryBuffer historyBuffer) {
+        this.historyBuffer = historyBuffer;
+        return this;
+    }
+
+    /**
+     * Contadores decaídos do cliente com as transações já processadas (sem a atual), ou null se não configurados.
+     * Quando presentes, velocidade e alta frequência decidem por eles em vez da janela. Para uma transação atrasada
+     * (timestamp anterior ao último evento do cliente) os contadores não voltam no tempo: valem os totais no último
+     * evento, sem decaimento, incluindo as transações com timestamp posterior ao da atual.
+     */
+    public DecayingCounters getDecayingCounters() {
+        return decayingCounters;
+    }
+
+    public EvaluationContext withDecayingCounters(DecayingCounters decayingCounters) {
+        this.decayingCounters = decayingCounters;
+        return this;
+    }
+
+    /**
+     * Regras que dispararam nesta avaliação ({@link FraudRule#mask()}).
+     */
+    public int getFiredRules() {
+        return firedRules;
+    }
+
+    public void addFiredRule(FraudRule rule) {
+        firedRules |= rule.mask();
+    }
+}
@@ -0,0 +1,77 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import szp.rafael.cct.utils.FixedPoint;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Headers com o resultado da avaliação, gravados junto de cada ProcessedClientCCTransaction para que o roteamento
+ * e os consumidores dos tópicos de saída possam filtrar sem desserializar o payload. Os valores são texto UTF-8:
+ * <ul>
+ *     <li>{@link #SCORE}: score de fraude (BigDecimal.toPlainString)</li>
+ *     <li>{@link #RULES}: regras disparadas ({@link FraudRule#names(int)})</li>
+ *     <li>{@link #DECISION}: {@link #REFUSED} ou {@link #APPROVED}</li>
+ * </ul>
+ */
+public final class FraudHeaders {
+
+    public static final String SCORE = "fraud-score";
+    public static final String RULES = "fraud-rules";
+    public static final String DECISION = "fraud-decision";
+
+    public static final String REFUSED = "REFUSED";
+    public static final String APPROVED = "APPROVED";
+
+    private FraudHeaders() {}
+
+    /**
+     * Substitui os headers de avaliação pelos do score/regras informados.
+     */
+    public static Headers write(Headers headers, long fraudScoreThousandths, int firedRules) {
+        put(headers, SCORE, FixedPoint.fromThousandths(fraudScoreThousandths).toPlainString());
+        put(headers, RULES, FraudRule.names(firedRules));
+        put(headers, DECISION, isRefused(fraudScoreThousandths) ? REFUSED : APPROVED);
+        return headers;
+    }
+
+    public static boolean isRefused(long fraudScoreThousandths) {
+        return fraudScoreThousandths > 0L;
+    }
+
+    /**
+     * Decisão gravada nos headers, ou null se o registro não tem o header.
+     */
+    public static Boolean isRefused(Headers headers) {
+        String decision = read(headers, DECISION);
+        return decision == null ? null : REFUSED.equals(decision);
+    }
+
+    /**
+     * Score gravado nos headers, ou null se o registro não tem o header.
+     */
+    public static BigDecimal fraudScore(Headers headers) {
+        String score = read(headers, SCORE);
+        return score == null ? null : new BigDecimal(score);
+    }
+
+    /**
+     * Máscara das regras disparadas ({@link FraudRule#mask()}), 0 se o registro não tem o header.
+     */
+    public static int firedRules(Headers headers) {
+        return FraudRule.parse(read(headers, RULES));
+    }
+
+    private static void put(Headers headers, String key, String value) {
+        headers.remove(key);
+        headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package szp.rafael.cct.stream.processor;
+
+import java.util.StringJoiner;
+
+/**
+ * Identificação das regras de fraude. Cada regra ocupa um bit, de forma que o conjunto de regras
+ * disparadas para uma transação cabe em um int (ver {@link FraudHeaders#RULES}).
+ */
+public enum FraudRule {
+    GEO,
+    MULTIPLE_IP,
+    PATTERN,
+    VELOCITY,
+    HIGH_FREQUENCY;
+
+    private static final FraudRule[] VALUES = values();
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Nomes das regras presentes na máscara, separados por vírgula ("" se nenhuma).
+     */
+    public static String names(int mask) {
+        StringJoiner names = new StringJoiner(",");
+        for (FraudRule rule : VALUES) {
+            if ((mask & rule.mask()) != 0) {
+                names.add(rule.name());
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * Inverso de {@link #names(int)}; nomes desconhecidos são ignorados.
+     */
+    public static int parse(String names) {
+        int mask = 0;
+        if (names == null || names.isEmpty()) {
+            return mask;
+        }
+        for (String name : names.split(",")) {
+            for (FraudRule rule : VALUES) {
+                if (rule.name().equals(name.trim())) {
+                    mask |= rule.mask();
+                }
+            }
+        }
+        return mask;
+    }
+}
@@ -2,10 +2,29 @@ package szp.rafael.cct.stream.processor;
 
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.stream.state.RollingWindowAggregate.Buckets;
+import szp.rafael.cct.utils.GeoPoint;
 import szp.rafael.cct.utils.GeoUtils;
 
+/**
+ * Recusa quando a soma das distâncias entre a transação atual e as da janela passa de {@link #MAX_DISTANCE_SUM_KM}.
+ *
+ * A soma é feita primeiro com cordas entre vetores unitários pré-calculados ({@link GeoPoint}), que nunca
+ * superam a distância de haversine: soma das cordas acima do limite já é fraude. Abaixo do limite, cada corda
+ * tem no máximo 30 km e a distância real passa da corda em menos de 1e-6 (relativo), então só uma soma dentro
+ * da margem {@link #CHORD_MARGIN} do limite é refeita com a distância exata.
+ *
+ * Transações da janela sem localização não entram na soma.
+ */
 public class GeoWindowCheck extends AbstractWindowProcessor {
 
+    public static final double MAX_DISTANCE_SUM_KM = 30.0d;
+    // folga sobre o erro da corda (< 1e-6) que cobre também o arredondamento das somas
+    static final double CHORD_MARGIN = 1e-5;
+    private static final double EXACT_BELOW_KM = MAX_DISTANCE_SUM_KM / (1 + CHORD_MARGIN);
+
     public GeoWindowCheck(String storeName) {
         super(storeName);
     }
@@ -16,19 +35,110 @@ public class GeoWindowCheck extends AbstractWindowProcessor {
            return EvaluationType.NOT_FRAUD;
        }
 
-       double sumDistance = 0.0d;
+        GeoPoint current = transaction.getCurrentClientCCTransaction().getGeolocation().getPoint();
+        double sumChord = 0.0d;
         for (CreditCardTransaction lastTransaction : transaction.getLastCCTransactions()) {
-            double distance = GeoUtils.calcularDistancia(transaction.getCurrentClientCCTransaction().getGeolocation().getLatitude(), transaction.getCurrentClientCCTransaction().getGeolocation().getLongitude(), lastTransaction.getGeolocation().getLatitude(), lastTransaction.getGeolocation().getLongitude());
-            sumDistance += distance;
+            if (lastTransaction.getGeolocation() != null) {
+                sumChord += current.chordKm(lastTransaction.getGeolocation().getPoint());
+            }
+        }
+        if(sumChord > MAX_DISTANCE_SUM_KM){
+            return EvaluationType.FRAUD;
+        }
+        if(sumChord <= EXACT_BELOW_KM){
+            return EvaluationType.NOT_FRAUD;
         }
 
-        if(sumDistance>30.0d){
+        // perto do limite: haversine
+        double sumDistance = 0.0d;
+        for (CreditCardTransaction lastTransaction : transaction.getLastCCTransactions()) {
+            if (lastTransaction.getGeolocation() == null) {
+                continue;
+            }
+            sumDistance += GeoUtils.calcularDistancia(current.getLatitude(), current.getLongitude(), lastTransaction.getGeolocation().getLatitude(), lastTransaction.getGeolocation().getLongitude());
+        }
+        if(sumDistance > MAX_DISTANCE_SUM_KM){
             return EvaluationType.FRAUD;
         }
 
         return EvaluationType.NOT_FRAUD;
     }
 
+    /**
+     * Com o histórico primitivo as cordas saem em lote dos vetores unitários gravados no buffer (vetorizadas
+     * quando a Vector API está habilitada), sem alocar transações; perto do limite a corda é convertida
+     * na distância de haversine.
+     */
+    @Override
+    public EvaluationType evaluate(EvaluationContext context) {
+        RollingWindowAggregate aggregate = context.getRollingAggregate();
+        if (aggregate != null) {
+            EvaluationType decision = evaluate(context, aggregate);
+            if (decision != null) {
+                return decision;
+            }
+        }
+        ClientHistoryBuffer history = context.getHistoryBuffer();
+        if (history == null) {
+            return super.evaluate(context);
+        }
+        GeoPoint current = context.getCurrent().getGeolocation().getPoint();
+        double[] chords = new double[history.size()];
+        history.chordsKm(current.x(), current.y(), current.z(), chords);
+        double sumChord = 0.0d;
+        for (int i = 0; i < chords.length; i++) {
+            // entradas sem localização têm corda NaN
+            if (context.isInWindow(history.timestamp(i)) && history.hasGeolocation(i)) {
+                sumChord += chords[i];
+            }
+        }
+        if (sumChord > MAX_DISTANCE_SUM_KM) {
+            return EvaluationType.FRAUD;
+        }
+        if (sumChord <= EXACT_BELOW_KM) {
+            return EvaluationType.NOT_FRAUD;
+        }
+        double sumDistance = 0.0d;
+        for (int i = 0; i < chords.length; i++) {
+            if (context.isInWindow(history.timestamp(i)) && history.hasGeolocation(i)) {
+                sumDistance += GeoUtils.chordToArcKm(chords[i]);
+            }
+        }
+        if (sumDistance > MAX_DISTANCE_SUM_KM) {
+            return EvaluationType.FRAUD;
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    /**
+     * Decide pelos limites do agregado quando eles bastam: soma das cordas com limite inferior acima do máximo
+     * é fraude, com limite superior abaixo da margem não é (os limites só contam transações com localização).
+     * Entre os dois, ou com o agregado sem cobrir a janela, devolve null e a soma é feita sobre o histórico.
+     */
+    private EvaluationType evaluate(EvaluationContext context, RollingWindowAggregate aggregate) {
+        long from = context.getWindowStart();
+        long to = context.getWindowEnd();
+        if (!aggregate.covers(from)) {
+            return null;
+        }
+        if (aggregate.count(from, to, Buckets.TOUCHING) == aggregate.countWithoutGeolocation(from, to, Buckets.TOUCHING)) {
+            return EvaluationType.NOT_FRAUD;
+        }
+        GeoPoint current = context.getCurrent().getGeolocation().getPoint();
+        if (aggregate.chordSumLowerBoundKm(from, to, current) > MAX_DISTANCE_SUM_KM * (1 + CHORD_MARGIN)) {
+            return EvaluationType.FRAUD;
+        }
+        if (aggregate.chordSumUpperBoundKm(from, to, current) <= EXACT_BELOW_KM) {
+            return EvaluationType.NOT_FRAUD;
+        }
+        return null;
+    }
+
+    @Override
+    public FraudRule getRule() {
+        return FraudRule.GEO;
+    }
+
     @Override
     public double getFraudScore() {
         return 0.9d; //valor arbitrário
@@ -1,6 +1,9 @@
 package szp.rafael.cct.stream.processor;
 
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
 
 import java.time.Duration;
 
@@ -22,6 +25,62 @@ public class HighFrequencyWindowCheck extends AbstractWindowProcessor{
         return EvaluationType.NOT_FRAUD;
     }
 
+    /**
+     * Com o agregado incremental a regra é uma consulta de tempo constante: o histórico da janela
+     * (quando não vazio) contém as transações anteriores mais a atual. Sem agregado, a contagem
+     * sai do histórico primitivo, se houver.
+     */
+    @Override
+    public EvaluationType evaluate(EvaluationContext context) {
+        DecayingCounters counters = context.getDecayingCounters();
+        if (counters != null) {
+            return evaluate(context, counters);
+        }
+        RollingWindowAggregate aggregate = context.getRollingAggregate();
+        ClientHistoryBuffer history = context.getHistoryBuffer();
+        if (aggregate == null && history == null) {
+            return super.evaluate(context);
+        }
+        int previousCount = aggregate != null
+                ? aggregate.count(context.getWindowStart(), context.getWindowEnd())
+                : countInWindow(context, history);
+        if (previousCount > 0 && previousCount + 1 >= MAX_TRANSACTIONS_IN_WINDOW) {
+            return EvaluationType.FRAUD;
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    /**
+     * Modo com contadores decaídos (substitui a janela): para cada meia-vida, a contagem decaída das anteriores
+     * mais a atual é comparada ao limite da janela proporcional à vida média τ, nunca abaixo do próprio limite,
+     * ou seja, meias-vidas curtas só disparam com uma rajada tão densa quanto a janela inteira permite.
+     */
+    private EvaluationType evaluate(EvaluationContext context, DecayingCounters counters) {
+        double windowMinutes = WINDOW_SIZE.toMillis() / 60000.0;
+        for (int i = 0; i < counters.size(); i++) {
+            double threshold = MAX_TRANSACTIONS_IN_WINDOW * Math.max(1d, counters.meanLifeMinutes(i) / windowMinutes);
+            if (counters.count(i, context.getWindowEnd()) + 1 >= threshold) {
+                return EvaluationType.FRAUD;
+            }
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    private static int countInWindow(EvaluationContext context, ClientHistoryBuffer history) {
+        int count = 0;
+        for (int i = 0; i < history.size(); i++) {
+            if (context.isInWindow(history.timestamp(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public FraudRule getRule() {
+        return FraudRule.HIGH_FREQUENCY;
+    }
+
     @Override
     public double getFraudScore() {
         return 1.0;
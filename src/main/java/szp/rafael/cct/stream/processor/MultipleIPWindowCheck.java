@@ -1,18 +1,33 @@
 package szp.rafael.cct.stream.processor;
 
-import io.vavr.control.Try;
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
-import szp.rafael.cct.utils.IpUtils;
-
-import java.net.InetAddress;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DistinctIpCounter;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.utils.IpClassifier;
+import szp.rafael.cct.utils.IpLiteral;
 
 public class MultipleIPWindowCheck extends AbstractWindowProcessor {
 
     public static final int MAX_DIFFERENT_IP_ADDRESSESES = 4;
 
+    private final IpClassifier ipClassifier;
+
     public MultipleIPWindowCheck(String storeName) {
+        this(storeName, IpClassifier.specialRanges());
+    }
+
+    /**
+     * @param ipClassifier faixas privadas/reservadas e lista de bloqueio; IP fora de {@link IpClassifier.Category#PUBLIC} é fraude
+     */
+    public MultipleIPWindowCheck(String storeName, IpClassifier ipClassifier) {
         super(storeName);
+        this.ipClassifier = ipClassifier;
+    }
+
+    public IpClassifier getIpClassifier() {
+        return ipClassifier;
     }
 
     @Override
@@ -20,13 +35,15 @@ public class MultipleIPWindowCheck extends AbstractWindowProcessor {
         if(transaction.getLastCCTransactions().isEmpty()){
             return EvaluationType.NOT_FRAUD;
         }
+        IpLiteral currentIp = parsedAddress(transaction.getCurrentClientCCTransaction());
         int mixCount = 0;
         for (CreditCardTransaction lastTransaction : transaction.getLastCCTransactions()) {
-            InetAddress ip = Try.of(() -> IpUtils.parseInetAddress(lastTransaction.getIpData().getPublicIpAddress())).getOrElse(InetAddress.getLoopbackAddress());
-            if(!IpUtils.isPublic(ip)){
+            IpLiteral ip = parsedAddress(lastTransaction);
+            // inválido, reservado, privado ou bloqueado (inclusive o IP atual, que também está no histórico) conta como fraude
+            if(ip == null || !ipClassifier.isPublic(ip) || currentIp == null || !ipClassifier.isPublic(currentIp)){
                 return EvaluationType.FRAUD;
             }
-            if(!IpUtils.areSamePublicIP(lastTransaction.getIpData().getPublicIpAddress(),transaction.getCurrentClientCCTransaction().getIpData().getPublicIpAddress())){
+            if(!ip.equals(currentIp)){
                 mixCount++;
             }
         }
@@ -37,6 +54,71 @@ public class MultipleIPWindowCheck extends AbstractWindowProcessor {
 
     }
 
+    /**
+     * Com o histórico primitivo os IPs são comparados pela chave inteira gravada no buffer
+     * e a classificação público/privado das transações anteriores já vem calculada na flag de cada entrada
+     * (pelo classificador vigente quando a entrada foi gravada); só o IP atual é classificado aqui.
+     *
+     * Com o contador de IPs distintos no agregado incremental a regra é uma consulta de tempo constante,
+     * e o limite passa a valer para IPs distintos (diferentes do atual) em vez de transações com outro IP.
+     */
+    @Override
+    public EvaluationType evaluate(EvaluationContext context) {
+        RollingWindowAggregate aggregate = context.getRollingAggregate();
+        DistinctIpCounter distinctIps = aggregate != null ? aggregate.getDistinctIps() : null;
+        if (distinctIps != null) {
+            if (distinctIps.hasNonPublicIp(context.getWindowStart(), context.getWindowEnd())) {
+                return EvaluationType.FRAUD;
+            }
+            // o contador só tem as transações anteriores: o IP atual é classificado aqui, como no buffer
+            if (!isPublic(context.getCurrent()) && distinctIps.estimate(context.getWindowStart(), context.getWindowEnd()) > 0) {
+                return EvaluationType.FRAUD;
+            }
+            int currentIp = ClientHistoryBuffer.ipKey(context.getCurrent().getIpData());
+            if (distinctIps.estimateExcluding(context.getWindowStart(), context.getWindowEnd(), currentIp) > MAX_DIFFERENT_IP_ADDRESSESES) {
+                return EvaluationType.FRAUD;
+            }
+            return EvaluationType.NOT_FRAUD;
+        }
+        ClientHistoryBuffer history = context.getHistoryBuffer();
+        if (history == null) {
+            return super.evaluate(context);
+        }
+        int currentIp = ClientHistoryBuffer.ipKey(context.getCurrent().getIpData());
+        boolean currentPublic = isPublic(context.getCurrent());
+        int mixCount = 0;
+        for (int i = 0; i < history.size(); i++) {
+            if (!context.isInWindow(history.timestamp(i))) {
+                continue;
+            }
+            // como no histórico de objetos, o IP atual só é classificado se há alguma transação na janela
+            if (!currentPublic || !history.isPublicIp(i)) {
+                return EvaluationType.FRAUD;
+            }
+            if (history.ip(i) != currentIp) {
+                mixCount++;
+            }
+        }
+        if(mixCount> MAX_DIFFERENT_IP_ADDRESSESES){
+            return EvaluationType.FRAUD;
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    private boolean isPublic(CreditCardTransaction transaction) {
+        IpLiteral address = parsedAddress(transaction);
+        return address != null && ipClassifier.isPublic(address);
+    }
+
+    private static IpLiteral parsedAddress(CreditCardTransaction transaction) {
+        return transaction.getIpData() != null ? transaction.getIpData().getParsedAddress() : null;
+    }
+
+    @Override
+    public FraudRule getRule() {
+        return FraudRule.MULTIPLE_IP;
+    }
+
     @Override
     public double getFraudScore() {
         return 0.75; //valor abritrário
@@ -2,14 +2,20 @@ package szp.rafael.cct.stream.processor;
 
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.stream.state.RollingWindowAggregate.Buckets;
+import szp.rafael.cct.utils.FixedPoint;
 import szp.rafael.cct.utils.GeoUtils;
 
 import java.math.BigDecimal;
 
 public class PatternWindowCheck extends AbstractWindowProcessor {
 
-    public static BigDecimal SMALL_AMOUNT_MAX_THRESHOLD = BigDecimal.valueOf(3.0d); // valor arbitrário
-    public static BigDecimal BIG_AMOUNT_MIN_THRESHOLD = BigDecimal.valueOf(500.0d); // valor arbitrário
+    public static final BigDecimal SMALL_AMOUNT_MAX_THRESHOLD = BigDecimal.valueOf(3.0d); // valor arbitrário
+    public static final BigDecimal BIG_AMOUNT_MIN_THRESHOLD = BigDecimal.valueOf(500.0d); // valor arbitrário
+    static final long SMALL_AMOUNT_MAX_MINOR_UNITS = FixedPoint.toMinorUnits(SMALL_AMOUNT_MAX_THRESHOLD);
+    static final long BIG_AMOUNT_MIN_MINOR_UNITS = FixedPoint.toMinorUnits(BIG_AMOUNT_MIN_THRESHOLD);
 
     public PatternWindowCheck(String storeName) {
         super(storeName);
@@ -19,17 +25,16 @@ public class PatternWindowCheck extends AbstractWindowProcessor {
     public EvaluationType evaluate(ProcessedClientCCTransaction transaction) {
 
         boolean previousIsLarge;
-        boolean currentIsLarge;
         boolean previousIsSmall;
-        boolean currentIsSmall;
+        long currentAmount = transaction.getCurrentClientCCTransaction().getAmountInMinorUnits();
+        boolean currentIsLarge = currentAmount > BIG_AMOUNT_MIN_MINOR_UNITS;
+        boolean currentIsSmall = currentAmount < SMALL_AMOUNT_MAX_MINOR_UNITS;
 
         for (CreditCardTransaction lastTransaction : transaction.getLastCCTransactions()) {
             //verificandoo se há uma sequencia de transações pequenas seguidas de grandes
             //quando isso acontece, deve ser considerado como fraude
-            previousIsLarge = lastTransaction.getAmount().compareTo(BIG_AMOUNT_MIN_THRESHOLD) > 0;
-            previousIsSmall = lastTransaction.getAmount().compareTo(SMALL_AMOUNT_MAX_THRESHOLD) < 0;
-            currentIsLarge = transaction.getCurrentClientCCTransaction().getAmount().compareTo(BIG_AMOUNT_MIN_THRESHOLD) > 0;
-            currentIsSmall = transaction.getCurrentClientCCTransaction().getAmount().compareTo(SMALL_AMOUNT_MAX_THRESHOLD) < 0;
+            previousIsLarge = lastTransaction.getAmountInMinorUnits() > BIG_AMOUNT_MIN_MINOR_UNITS;
+            previousIsSmall = lastTransaction.getAmountInMinorUnits() < SMALL_AMOUNT_MAX_MINOR_UNITS;
             if((previousIsSmall && currentIsLarge)  || (previousIsLarge && currentIsSmall)){
                 return EvaluationType.FRAUD;
             }
@@ -38,6 +43,65 @@ public class PatternWindowCheck extends AbstractWindowProcessor {
         return EvaluationType.NOT_FRAUD;
     }
 
+    /**
+     * Com o histórico primitivo os valores anteriores são comparados em centavos. Com o agregado, o menor e o maior
+     * valor dos buckets dentro da janela (subconjunto) e dos que a tocam (superconjunto) decidem sem varrer
+     * o histórico, exceto quando só os buckets das bordas têm valores do outro extremo.
+     */
+    @Override
+    public EvaluationType evaluate(EvaluationContext context) {
+        RollingWindowAggregate aggregate = context.getRollingAggregate();
+        ClientHistoryBuffer history = context.getHistoryBuffer();
+        if (history == null && aggregate == null) {
+            return super.evaluate(context);
+        }
+        long smallThreshold = SMALL_AMOUNT_MAX_MINOR_UNITS;
+        long largeThreshold = BIG_AMOUNT_MIN_MINOR_UNITS;
+        long currentAmount = context.getCurrent().getAmountInMinorUnits();
+        boolean currentIsLarge = currentAmount > largeThreshold;
+        boolean currentIsSmall = currentAmount < smallThreshold;
+        if (!currentIsLarge && !currentIsSmall) {
+            return EvaluationType.NOT_FRAUD;
+        }
+        long from = context.getWindowStart();
+        long to = context.getWindowEnd();
+        if (aggregate != null && aggregate.covers(from)) {
+            if (currentIsLarge) {
+                if (aggregate.minAmountInMinorUnits(from, to, Buckets.INSIDE) < smallThreshold) {
+                    return EvaluationType.FRAUD;
+                }
+                if (aggregate.minAmountInMinorUnits(from, to, Buckets.TOUCHING) >= smallThreshold) {
+                    return EvaluationType.NOT_FRAUD;
+                }
+            } else {
+                if (aggregate.maxAmountInMinorUnits(from, to, Buckets.INSIDE) > largeThreshold) {
+                    return EvaluationType.FRAUD;
+                }
+                if (aggregate.maxAmountInMinorUnits(from, to, Buckets.TOUCHING) <= largeThreshold) {
+                    return EvaluationType.NOT_FRAUD;
+                }
+            }
+        }
+        if (history == null) {
+            return super.evaluate(context);
+        }
+        for (int i = 0; i < history.size(); i++) {
+            if (!context.isInWindow(history.timestamp(i))) {
+                continue;
+            }
+            long previousAmount = history.amountInMinorUnits(i);
+            if ((previousAmount < smallThreshold && currentIsLarge) || (previousAmount > largeThreshold && currentIsSmall)) {
+                return EvaluationType.FRAUD;
+            }
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    @Override
+    public FraudRule getRule() {
+        return FraudRule.PATTERN;
+    }
+
     @Override
     public double getFraudScore() {
         return 0.55;
@@ -0,0 +1,46 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorSupplier;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.model.creditCard.RuleResult;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Converte os {@link RuleResult} de volta no formato de entrada do {@link CCTxMerger}.
+ *
+ * Resultados compactos viram um ProcessedClientCCTransaction sem transação atual e sem histórico, só com o score;
+ * o merger usa a transação e o histórico do resultado que os carrega. A regra disparada vai no header fraud-rules.
+ */
+public class RuleResultDecoder implements FixedKeyProcessorSupplier<String, RuleResult, ProcessedClientCCTransaction> {
+
+    private static final FraudRule[] RULES = FraudRule.values();
+
+    @Override
+    public FixedKeyProcessor<String, RuleResult, ProcessedClientCCTransaction> get() {
+        return new FixedKeyProcessor<String, RuleResult, ProcessedClientCCTransaction>() {
+
+            private FixedKeyProcessorContext<String, ProcessedClientCCTransaction> context;
+
+            @Override
+            public void init(FixedKeyProcessorContext<String, ProcessedClientCCTransaction> context) {
+                this.context = context;
+            }
+
+            @Override
+            public void process(FixedKeyRecord<String, RuleResult> record) {
+                RuleResult result = record.value();
+                ProcessedClientCCTransaction transaction = result.getTransaction() != null
+                        ? new ProcessedClientCCTransaction(result.getClientId(), result.getTransaction().getCurrentClientCCTransaction(), result.getTransaction().getLastCCTransactions())
+                        : new ProcessedClientCCTransaction(result.getClientId(), null, new LinkedHashSet<>());
+                transaction.setFraudScoreThousandths(result.getFraudScoreThousandths());
+                int firedRules = FraudHeaders.isRefused(result.getFraudScoreThousandths()) ? RULES[result.getRule()].mask() : 0;
+                FraudHeaders.write(record.headers(), result.getFraudScoreThousandths(), firedRules);
+                context.forward(record.withValue(transaction));
+            }
+        };
+    }
+}
@@ -2,6 +2,10 @@ package szp.rafael.cct.stream.processor;
 
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.utils.FixedPoint;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -10,6 +14,9 @@ import java.util.stream.Collectors;
 public class VelocityWindowCheck extends AbstractWindowProcessor{
 
     public static final BigDecimal MAX_AMOUNT_PER_MINUTE_THRESHOLD = BigDecimal.valueOf(1000.0d);
+    static final long MAX_MINOR_UNITS_PER_MINUTE = FixedPoint.toMinorUnits(MAX_AMOUNT_PER_MINUTE_THRESHOLD);
+    // peso mínimo das transações anteriores para formar taxa no modo decaído (a anterior a até uma meia-vida)
+    private static final double MIN_PREVIOUS_WEIGHT = 0.5;
 
     public VelocityWindowCheck(String storeName) {
         super(storeName);
@@ -22,26 +29,111 @@ public class VelocityWindowCheck extends AbstractWindowProcessor{
             return EvaluationType.NOT_FRAUD;
         }
 
-        double sumAmount = 0.0d;
+        long sumInMinorUnits = 0L;
 
         CreditCardTransaction firstTransaction = transaction.getLastCCTransactions().stream().filter(t->!t.getTransactionId().equals(transaction.getCurrentClientCCTransaction().getTransactionId()))
                 .toList()
                 .stream().findFirst().get();
         CreditCardTransaction lastTransaction = transaction.getLastCCTransactions().stream().reduce((first, second) -> second).get();
         for (CreditCardTransaction fetchTransaction : transaction.getLastCCTransactions()) {
-            sumAmount += fetchTransaction.getAmount().doubleValue();
+            sumInMinorUnits += fetchTransaction.getAmountInMinorUnits();
         }
 
         long timestamp = firstTransaction.getTimestamp();
         long timestamp1 = lastTransaction.getTimestamp();
-        if(exceedsRate(sumAmount, timestamp, timestamp1)){
-            getLogger().warn("FRAUD {}: {}",transaction.getCurrentClientCCTransaction().getClientId(), computeRate(sumAmount,timestamp,timestamp1));
+        if(exceedsRate(sumInMinorUnits, timestamp, timestamp1)){
+            getLogger().warn("FRAUD {}: {}",transaction.getCurrentClientCCTransaction().getClientId(), computeRate(sumInMinorUnits,timestamp,timestamp1));
             return EvaluationType.FRAUD;
         }
 
         return EvaluationType.NOT_FRAUD;
     }
 
+    /**
+     * Com o agregado incremental a regra não varre o histórico: soma, primeiro e último timestamp
+     * das transações anteriores vêm do agregado e a transação atual entra apenas na soma,
+     * exatamente como no cálculo sobre o histórico.
+     */
+    @Override
+    public EvaluationType evaluate(EvaluationContext context) {
+        DecayingCounters counters = context.getDecayingCounters();
+        if (counters != null) {
+            return evaluate(context, counters);
+        }
+        RollingWindowAggregate aggregate = context.getRollingAggregate();
+        if (aggregate == null) {
+            return context.getHistoryBuffer() != null ? evaluate(context, context.getHistoryBuffer()) : super.evaluate(context);
+        }
+        long from = context.getWindowStart();
+        long to = context.getWindowEnd();
+        if (aggregate.count(from, to) == 0) {
+            return EvaluationType.NOT_FRAUD;
+        }
+
+        long sumInMinorUnits = aggregate.sumInMinorUnits(from, to) + context.getCurrent().getAmountInMinorUnits();
+        long timestamp = aggregate.firstTimestamp(from, to);
+        long timestamp1 = aggregate.lastTimestamp(from, to);
+        if(exceedsRate(sumInMinorUnits, timestamp, timestamp1)){
+            getLogger().warn("FRAUD {}: {}",context.getCurrent().getClientId(), computeRate(sumInMinorUnits,timestamp,timestamp1));
+            return EvaluationType.FRAUD;
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    /**
+     * Modo com contadores decaídos (substitui a janela): para cada meia-vida, a taxa em R$/minuto é a soma decaída
+     * das anteriores mais a atual dividida pela vida média τ. Como na janela, uma transação isolada não forma taxa:
+     * a meia-vida só conta se as anteriores ainda pesam {@link #MIN_PREVIOUS_WEIGHT}.
+     */
+    private EvaluationType evaluate(EvaluationContext context, DecayingCounters counters) {
+        long now = context.getWindowEnd();
+        long currentAmount = context.getCurrent().getAmountInMinorUnits();
+        for (int i = 0; i < counters.size(); i++) {
+            if (counters.count(i, now) < MIN_PREVIOUS_WEIGHT) {
+                continue;
+            }
+            double rateInMinorUnits = (counters.sumInMinorUnits(i, now) + currentAmount) / counters.meanLifeMinutes(i);
+            if (rateInMinorUnits > MAX_MINOR_UNITS_PER_MINUTE) {
+                getLogger().warn("FRAUD {}: {} (meia-vida {})", context.getCurrent().getClientId(), FixedPoint.minorUnitsToDouble(Math.round(rateInMinorUnits)), counters.halfLife(i));
+                return EvaluationType.FRAUD;
+            }
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    /**
+     * Mesmo cálculo sobre o histórico primitivo: soma em centavos, menor e maior timestamp das transações anteriores.
+     */
+    private EvaluationType evaluate(EvaluationContext context, ClientHistoryBuffer history) {
+        int count = 0;
+        long sumInMinorUnits = context.getCurrent().getAmountInMinorUnits();
+        long timestamp = Long.MAX_VALUE;
+        long timestamp1 = Long.MIN_VALUE;
+        for (int i = 0; i < history.size(); i++) {
+            long entryTimestamp = history.timestamp(i);
+            if (!context.isInWindow(entryTimestamp)) {
+                continue;
+            }
+            count++;
+            sumInMinorUnits += history.amountInMinorUnits(i);
+            timestamp = Math.min(timestamp, entryTimestamp);
+            timestamp1 = Math.max(timestamp1, entryTimestamp);
+        }
+        if (count == 0) {
+            return EvaluationType.NOT_FRAUD;
+        }
+        if(exceedsRate(sumInMinorUnits, timestamp, timestamp1)){
+            getLogger().warn("FRAUD {}: {}",context.getCurrent().getClientId(), computeRate(sumInMinorUnits,timestamp,timestamp1));
+            return EvaluationType.FRAUD;
+        }
+        return EvaluationType.NOT_FRAUD;
+    }
+
+    @Override
+    public FraudRule getRule() {
+        return FraudRule.VELOCITY;
+    }
+
     @Override
     public double getFraudScore() {
         return 0.99;
@@ -50,13 +142,14 @@ public class VelocityWindowCheck extends AbstractWindowProcessor{
     /**
      * Verifica se a taxa média de transações (R$/minuto)
      * entre dois timestamps excede o limite especificado.
+     * A comparação é exata em centavos: total · 60000 > limite por minuto · duração em ms.
      *
-     * @param totalAmount valor total das transações no intervalo
+     * @param totalInMinorUnits valor total das transações no intervalo, em centavos
      * @param firstTimestampMs timestamp (epoch ms) do primeiro evento
      * @param lastTimestampMs timestamp (epoch ms) do último evento
      * @return true se a taxa média exceder o limite
      */
-    private static boolean exceedsRate(double totalAmount,
+    private static boolean exceedsRate(long totalInMinorUnits,
                                       long firstTimestampMs,
                                       long lastTimestampMs) {
 
@@ -64,26 +157,19 @@ public class VelocityWindowCheck extends AbstractWindowProcessor{
             return false;
         }
 
-        if (lastTimestampMs <= firstTimestampMs) {
+        long durationMs = lastTimestampMs - firstTimestampMs;
+        if (durationMs <= 0) {
             // evita divisão por zero, considera mínimo de 1 segundo
-            lastTimestampMs = firstTimestampMs + 1000;
-        }
-
-        Duration duration = Duration.ofMillis(lastTimestampMs - firstTimestampMs);
-        double minutes = duration.toMillis() / 60000.0; // converte para minutos
-
-        if (minutes <= 0.0) {
-            // fallback de segurança
-            minutes = 1.0 / 60.0; // 1 segundo
+            durationMs = 1000;
         }
 
-        double rate = totalAmount / minutes;
-        return rate > MAX_AMOUNT_PER_MINUTE_THRESHOLD.doubleValue();
+        return totalInMinorUnits * 60_000L > MAX_MINOR_UNITS_PER_MINUTE * durationMs;
     }
 
-    private static double computeRate(double totalAmount,
+    private static double computeRate(long totalInMinorUnits,
                                      long firstTimestampMs,
                                      long lastTimestampMs) {
+        double totalAmount = FixedPoint.minorUnitsToDouble(totalInMinorUnits);
         if (lastTimestampMs <= firstTimestampMs) {
             return totalAmount; // duração nula: taxa = total instantânea
         }
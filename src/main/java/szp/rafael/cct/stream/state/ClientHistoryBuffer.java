@@ -0,0 +1,262 @@
+package szp.rafael.cct.stream.state;
+
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.utils.GeoPoint;
+import szp.rafael.cct.utils.GeoUtils;
+import szp.rafael.cct.utils.IpClassifier;
+import szp.rafael.cct.utils.IpLiteral;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Histórico recente de um cliente em arrays primitivos paralelos, organizados como ring buffer limitado.
+ *
+ * É gravado como um único {@code byte[]} em uma KeyValueStore chaveada por clientId: um get pontual
+ * substitui o iterator de range da WindowStore e as regras percorrem o histórico sem alocar objetos.
+ *
+ * Índices lógicos vão de 0 (mais antigo) a {@link #size()} - 1 (mais recente). Quando a capacidade
+ * é atingida, a entrada mais antiga é sobrescrita.
+ *
+ * A localização é guardada já como vetor unitário ({@link GeoPoint}), calculado uma vez quando a transação
+ * entra no histórico: a regra geográfica mede cordas sem trigonometria por entrada.
+ */
+public class ClientHistoryBuffer {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    public static final byte FLAG_PUBLIC_IP = 1;
+    public static final byte FLAG_HAS_GEOLOCATION = 1 << 1;
+
+    private static final byte FORMAT_VERSION = 2; // 1: latitude/longitude em vez do vetor unitário
+    private static final byte FORMAT_VERSION_LAT_LON = 1;
+    private static final int HEADER_BYTES = 1 + 4 + 4;
+    private static final int ENTRY_BYTES = 8 + 8 + 8 + 8 + 8 + 4 + 1;
+
+    private final long[] timestamps;
+    private final long[] amounts;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] ips;
+    private final byte[] flags;
+    private int head;
+    private int size;
+
+    public ClientHistoryBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ClientHistoryBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        timestamps = new long[capacity];
+        amounts = new long[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        zs = new double[capacity];
+        ips = new int[capacity];
+        flags = new byte[capacity];
+    }
+
+    // ---------------- escrita ----------------
+
+    public void add(CreditCardTransaction transaction) {
+        add(transaction, IpClassifier.specialRanges());
+    }
+
+    /**
+     * @param ipClassifier define a flag {@link #FLAG_PUBLIC_IP}, fixada no momento da gravação
+     */
+    public void add(CreditCardTransaction transaction, IpClassifier ipClassifier) {
+        boolean hasGeolocation = transaction.getGeolocation() != null;
+        GeoPoint point = hasGeolocation ? transaction.getGeolocation().getPoint() : null;
+        IpData ipData = transaction.getIpData();
+        IpLiteral address = ipData != null ? ipData.getParsedAddress() : null;
+        byte entryFlags = 0;
+        if (hasGeolocation) entryFlags |= FLAG_HAS_GEOLOCATION;
+        if (address != null && ipClassifier.isPublic(address)) entryFlags |= FLAG_PUBLIC_IP;
+        addEntry(transaction.getTimestamp(),
+                transaction.getAmountInMinorUnits(),
+                hasGeolocation ? point.x() : Double.NaN,
+                hasGeolocation ? point.y() : Double.NaN,
+                hasGeolocation ? point.z() : Double.NaN,
+                ipKey(ipData),
+                entryFlags);
+    }
+
+    public void add(long timestamp, long amountInMinorUnits, double latitude, double longitude, int ip, byte entryFlags) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            addEntry(timestamp, amountInMinorUnits, Double.NaN, Double.NaN, Double.NaN, ip, entryFlags);
+        } else {
+            GeoPoint point = GeoPoint.of(latitude, longitude);
+            addEntry(timestamp, amountInMinorUnits, point.x(), point.y(), point.z(), ip, entryFlags);
+        }
+    }
+
+    private void addEntry(long timestamp, long amountInMinorUnits, double x, double y, double z, int ip, byte entryFlags) {
+        int capacity = timestamps.length;
+        int slot;
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head; // sobrescreve o mais antigo
+            head = (head + 1) % capacity;
+        }
+        timestamps[slot] = timestamp;
+        amounts[slot] = amountInMinorUnits;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        ips[slot] = ip;
+        flags[slot] = entryFlags;
+    }
+
+    /**
+     * Descarta, a partir do mais antigo, as entradas anteriores a {@code from}.
+     */
+    public void evictBefore(long from) {
+        while (size > 0 && timestamps[head] < from) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    // ---------------- leitura ----------------
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public long timestamp(int i) {
+        return timestamps[slot(i)];
+    }
+
+    public long amountInMinorUnits(int i) {
+        return amounts[slot(i)];
+    }
+
+    /**
+     * Corda entre a localização da entrada e o vetor unitário informado, em km (NaN se a entrada não tem localização).
+     */
+    public double chordKm(int i, double x, double y, double z) {
+        int slot = slot(i);
+        return GeoUtils.chordKm(xs[slot], ys[slot], zs[slot], x, y, z);
+    }
+
+    /**
+     * Cordas de todas as entradas até o vetor unitário informado, em lote ({@link GeoUtils#chordsKm}):
+     * out[i] recebe o mesmo valor de {@link #chordKm(int, double, double, double)} para i em [0, size()).
+     */
+    public void chordsKm(double x, double y, double z, double[] out) {
+        // o ring buffer é contíguo em no máximo dois trechos: [head, fim do array) e [0, resto)
+        int first = Math.min(size, timestamps.length - head);
+        GeoUtils.chordsKm(xs, ys, zs, head, first, x, y, z, out, 0);
+        if (first < size) {
+            GeoUtils.chordsKm(xs, ys, zs, 0, size - first, x, y, z, out, first);
+        }
+    }
+
+    public int ip(int i) {
+        return ips[slot(i)];
+    }
+
+    public boolean isPublicIp(int i) {
+        return (flags[slot(i)] & FLAG_PUBLIC_IP) != 0;
+    }
+
+    public boolean hasGeolocation(int i) {
+        return (flags[slot(i)] & FLAG_HAS_GEOLOCATION) != 0;
+    }
+
+    private int slot(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return (head + i) % timestamps.length;
+    }
+
+    // ---------------- codificação ----------------
+
+    /**
+     * Codifica o buffer (somente as entradas válidas, da mais antiga para a mais recente).
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size * ENTRY_BYTES);
+        buffer.put(FORMAT_VERSION);
+        buffer.putInt(timestamps.length);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            buffer.putLong(timestamps[slot]);
+            buffer.putLong(amounts[slot]);
+            buffer.putDouble(xs[slot]);
+            buffer.putDouble(ys[slot]);
+            buffer.putDouble(zs[slot]);
+            buffer.putInt(ips[slot]);
+            buffer.put(flags[slot]);
+        }
+        return buffer.array();
+    }
+
+    public static ClientHistoryBuffer fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_LAT_LON) {
+            throw new IllegalArgumentException("Versão de ClientHistoryBuffer não suportada: " + version);
+        }
+        ClientHistoryBuffer history = new ClientHistoryBuffer(buffer.getInt());
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            if (version == FORMAT_VERSION_LAT_LON) {
+                // gravado antes do vetor unitário: convertido uma vez aqui e regravado no formato atual
+                history.add(buffer.getLong(), buffer.getLong(), buffer.getDouble(), buffer.getDouble(), buffer.getInt(), buffer.get());
+            } else {
+                history.addEntry(buffer.getLong(), buffer.getLong(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getInt(), buffer.get());
+            }
+        }
+        return history;
+    }
+
+    // ---------------- IP ----------------
+
+    /**
+     * Chave inteira do IP, a partir do endereço canônico de {@link IpLiteral}: o próprio endereço para IPv4
+     * (inclusive IPv4-mapped) e os 128 bits misturados para IPv6, de forma que grafias diferentes do mesmo
+     * endereço ("::1" e "0:0:0:0:0:0:0:1") têm a mesma chave. Texto que não é literal cai no hash da string.
+     */
+    public static int ipKey(String ip) {
+        return ip == null ? 0 : ipKey(IpLiteral.parse(ip), ip);
+    }
+
+    /**
+     * Chave do IP a partir do endereço já convertido no IpData, igual a {@link #ipKey(String)}.
+     */
+    public static int ipKey(IpData ipData) {
+        return ipData == null ? 0 : ipKey(ipData.getParsedAddress(), ipData.getPublicIpAddress());
+    }
+
+    private static int ipKey(IpLiteral address, String text) {
+        if (address == null) {
+            return text == null ? 0 : text.hashCode();
+        }
+        if (address.isIPv4()) {
+            return address.ipv4();
+        }
+        // finalizador do SplitMix64 sobre as duas metades: endereços IPv6 próximos não colidem por estrutura
+        return (int) (mix(mix(address.high()) ^ address.low()) >>> 32);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static boolean isPublicIp(String ip) {
+        IpLiteral address = IpLiteral.parse(ip);
+        return address != null && address.isPublic();
+    }
+}
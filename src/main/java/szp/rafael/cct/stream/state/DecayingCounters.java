@@ -0,0 +1,157 @@
+package szp.rafael.cct.stream.state;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Somas e contagens com decaimento exponencial por cliente, um par por meia-vida configurada (ex.: 1, 5 e 30 minutos).
+ *
+ * Cada par é atualizado em O(1) por evento: decai por 2^(-Δt/h) desde o último evento e soma o novo. Com meia-vida h
+ * o par se comporta como uma janela deslizante de τ = h / ln 2 (vida média): um fluxo constante de r eventos por minuto
+ * leva a contagem a r·τ. Nenhum evento é guardado; o estado é um byte[] de 10 + 24 bytes por meia-vida.
+ *
+ * Eventos fora de ordem entram já decaídos até o último timestamp visto, sem voltar o relógio. Pelo mesmo motivo,
+ * consultas em um instante anterior ao último evento devolvem os totais nesse último evento, que incluem os eventos
+ * posteriores ao instante consultado.
+ */
+public class DecayingCounters {
+
+    public static final Duration[] DEFAULT_HALF_LIVES = {Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(30)};
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final double LN_2 = Math.log(2d);
+
+    private final long[] halfLivesMs;
+    private final double[] sumsInMinorUnits;
+    private final double[] counts;
+    private long lastTimestamp = EMPTY;
+
+    public DecayingCounters(Duration... halfLives) {
+        if (halfLives.length == 0 || halfLives.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("halfLives must have 1 to 127 entries");
+        }
+        halfLivesMs = new long[halfLives.length];
+        for (int i = 0; i < halfLives.length; i++) {
+            halfLivesMs[i] = halfLives[i].toMillis();
+            if (halfLivesMs[i] <= 0) throw new IllegalArgumentException("half-life must be > 0");
+        }
+        sumsInMinorUnits = new double[halfLives.length];
+        counts = new double[halfLives.length];
+    }
+
+    public static DecayingCounters of() {
+        return new DecayingCounters(DEFAULT_HALF_LIVES);
+    }
+
+    public void add(long timestamp, long amountInMinorUnits) {
+        if (lastTimestamp == EMPTY) {
+            lastTimestamp = timestamp;
+        }
+        long elapsed = timestamp - lastTimestamp;
+        for (int i = 0; i < halfLivesMs.length; i++) {
+            if (elapsed >= 0) {
+                double decay = decay(i, elapsed);
+                sumsInMinorUnits[i] = sumsInMinorUnits[i] * decay + amountInMinorUnits;
+                counts[i] = counts[i] * decay + 1d;
+            } else {
+                double weight = decay(i, -elapsed);
+                sumsInMinorUnits[i] += amountInMinorUnits * weight;
+                counts[i] += weight;
+            }
+        }
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+    }
+
+    public int size() {
+        return halfLivesMs.length;
+    }
+
+    public Duration halfLife(int i) {
+        return Duration.ofMillis(halfLivesMs[i]);
+    }
+
+    /**
+     * Vida média τ = h / ln 2 em minutos: o comprimento da janela equivalente à meia-vida {@code i}.
+     */
+    public double meanLifeMinutes(int i) {
+        return halfLivesMs[i] / LN_2 / 60000.0;
+    }
+
+    /**
+     * Soma decaída até {@code timestamp}; se anterior ao último evento, a soma no último evento, sem decaimento
+     * (inclui eventos posteriores a {@code timestamp}).
+     */
+    public double sumInMinorUnits(int i, long timestamp) {
+        return sumsInMinorUnits[i] * decayTo(i, timestamp);
+    }
+
+    /**
+     * Contagem decaída até {@code timestamp}; se anterior ao último evento, a contagem no último evento, sem
+     * decaimento (inclui eventos posteriores a {@code timestamp}).
+     */
+    public double count(int i, long timestamp) {
+        return counts[i] * decayTo(i, timestamp);
+    }
+
+    /**
+     * Se os contadores foram criados com as mesmas meias-vidas (as configuradas podem mudar entre execuções).
+     */
+    public boolean hasHalfLives(Duration... halfLives) {
+        if (halfLives.length != halfLivesMs.length) {
+            return false;
+        }
+        for (int i = 0; i < halfLives.length; i++) {
+            if (halfLives[i].toMillis() != halfLivesMs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double decayTo(int i, long timestamp) {
+        return lastTimestamp == EMPTY || timestamp <= lastTimestamp ? 1d : decay(i, timestamp - lastTimestamp);
+    }
+
+    private double decay(int i, long elapsedMs) {
+        return Math.pow(2d, -(double) elapsedMs / halfLivesMs[i]);
+    }
+
+    // ---------------- codificação ----------------
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 8 + halfLivesMs.length * (8 + 8 + 8));
+        buffer.put(FORMAT_VERSION);
+        buffer.put((byte) halfLivesMs.length);
+        buffer.putLong(lastTimestamp);
+        for (int i = 0; i < halfLivesMs.length; i++) {
+            buffer.putLong(halfLivesMs[i]);
+            buffer.putDouble(sumsInMinorUnits[i]);
+            buffer.putDouble(counts[i]);
+        }
+        return buffer.array();
+    }
+
+    public static DecayingCounters fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Versão de DecayingCounters não suportada: " + version);
+        }
+        int size = buffer.get();
+        long lastTimestamp = buffer.getLong();
+        Duration[] halfLives = new Duration[size];
+        double[] sums = new double[size];
+        double[] counts = new double[size];
+        for (int i = 0; i < size; i++) {
+            halfLives[i] = Duration.ofMillis(buffer.getLong());
+            sums[i] = buffer.getDouble();
+            counts[i] = buffer.getDouble();
+        }
+        DecayingCounters counters = new DecayingCounters(halfLives);
+        System.arraycopy(sums, 0, counters.sumsInMinorUnits, 0, size);
+        System.arraycopy(counts, 0, counters.counts, 0, size);
+        counters.lastTimestamp = lastTimestamp;
+        return counters;
+    }
+}
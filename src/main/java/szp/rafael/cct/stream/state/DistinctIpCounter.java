@@ -0,0 +1,256 @@
+package szp.rafael.cct.stream.state;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Contagem de IPs distintos por cliente em uma janela deslizante, mantida incrementalmente.
+ *
+ * Até {@link #EXACT_CAPACITY} IPs ativos na janela a contagem é exata: cada IP guarda o último timestamp em
+ * que apareceu e, com o conjunto cheio, o mais antigo dá lugar ao novo. Se o descartado ainda estava na janela,
+ * passa a valer também um HyperLogLog de {@link #REGISTERS} registradores por bucket de tempo (anel, como no
+ * {@link RollingWindowAggregate}), semeado com os IPs do conjunto exato; buckets antigos expiram junto com a janela
+ * e o sketch é descartado quando nenhum IP removido do conjunto exato cabe mais na janela.
+ *
+ * IPs não públicos ficam marcados por bucket de tempo (outro anel, com o primeiro e o último timestamp não público
+ * de cada bucket), para que uma transação fora de ordem não esconda outra mais antiga ainda na janela.
+ *
+ * Como o limite da regra de IPs fica muito abaixo da capacidade exata, a decisão no limite é sempre exata;
+ * o sketch só estima clientes com dezenas ou mais de IPs (erro padrão ~1,04/√64 ≈ 13%).
+ * Consultas e atualizações custam no máximo {@code EXACT_CAPACITY + buckets * REGISTERS} passos, sem depender
+ * do tamanho do histórico.
+ */
+public class DistinctIpCounter {
+
+    public static final int EXACT_CAPACITY = 32;
+    public static final int PRECISION = 6;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final double ALPHA = 0.709; // correção do HyperLogLog para 64 registradores
+
+    private long windowSizeMs;
+    private long bucketSizeMs;
+    private int[] ips;
+    private long[] lastSeen;
+    private int size;
+    private long evictedUpTo = EMPTY; // maior lastSeen entre os IPs removidos do conjunto exato
+    // buckets com IP não público: null enquanto nenhum apareceu
+    private long[] nonPublicBucketIds;
+    private long[] nonPublicFirst;
+    private long[] nonPublicLast;
+    // sketch: null enquanto o conjunto exato dá conta
+    private long[] sketchBucketIds;
+    private byte[] registers;
+
+    // Construtor padrão (necessário para desserialização)
+    public DistinctIpCounter() {
+    }
+
+    public DistinctIpCounter(Duration windowSize, Duration bucketSize) {
+        this.windowSizeMs = windowSize.toMillis();
+        this.bucketSizeMs = bucketSize.toMillis();
+        this.ips = new int[EXACT_CAPACITY];
+        this.lastSeen = new long[EXACT_CAPACITY];
+    }
+
+    /**
+     * Registra o IP de uma transação.
+     *
+     * @param ip       chave do IP ({@link ClientHistoryBuffer#ipKey})
+     * @param publicIp se o IP foi classificado como público
+     */
+    public void add(long timestamp, int ip, boolean publicIp) {
+        if (!publicIp) {
+            addNonPublic(timestamp);
+        }
+        if (registers != null) {
+            if (evictedUpTo < timestamp - windowSizeMs) {
+                // o conjunto exato voltou a cobrir a janela inteira
+                registers = null;
+                sketchBucketIds = null;
+            } else {
+                addToSketch(timestamp, ip);
+            }
+        }
+        int oldest = -1;
+        for (int i = 0; i < size; i++) {
+            if (ips[i] == ip) {
+                lastSeen[i] = Math.max(lastSeen[i], timestamp);
+                return;
+            }
+            if (oldest < 0 || lastSeen[i] < lastSeen[oldest]) {
+                oldest = i;
+            }
+        }
+        if (size < EXACT_CAPACITY) {
+            ips[size] = ip;
+            lastSeen[size] = timestamp;
+            size++;
+            return;
+        }
+        if (lastSeen[oldest] >= timestamp - windowSizeMs && registers == null) {
+            // conjunto cheio de IPs ainda na janela: a partir daqui a contagem depende do sketch
+            startSketch();
+            addToSketch(timestamp, ip);
+        }
+        evictedUpTo = Math.max(evictedUpTo, lastSeen[oldest]);
+        ips[oldest] = ip;
+        lastSeen[oldest] = timestamp;
+    }
+
+    /**
+     * Estimativa de IPs distintos vistos em [from, to].
+     */
+    public int estimate(long from, long to) {
+        return estimate(from, to, false, 0);
+    }
+
+    /**
+     * Estimativa de IPs distintos vistos em [from, to], sem contar {@code excludedIp}.
+     */
+    public int estimateExcluding(long from, long to, int excludedIp) {
+        return estimate(from, to, true, excludedIp);
+    }
+
+    /**
+     * Se a contagem em [from, to] é exata, isto é, nenhum IP dessa janela foi removido do conjunto exato.
+     */
+    public boolean isExact(long from) {
+        return evictedUpTo == EMPTY || evictedUpTo < from;
+    }
+
+    private int estimate(long from, long to, boolean exclude, int excludedIp) {
+        int exact = 0;
+        boolean excludedSeen = false;
+        for (int i = 0; i < size; i++) {
+            if (lastSeen[i] >= from && lastSeen[i] <= to) {
+                if (exclude && ips[i] == excludedIp) {
+                    excludedSeen = true;
+                } else {
+                    exact++;
+                }
+            }
+        }
+        if (registers == null || isExact(from)) {
+            return exact;
+        }
+        // o conjunto exato guarda os IPs mais recentes, então é um limite inferior do sketch
+        long sketch = Math.round(sketchEstimate(from, to)) - (excludedSeen ? 1 : 0);
+        return (int) Math.max(exact, sketch);
+    }
+
+    /**
+     * Se algum IP não público apareceu em [from, to]. Exato sempre que a janela cobre mais de um bucket: nos buckets
+     * das pontas o primeiro/último timestamp não público decide, nos do meio basta a marca.
+     */
+    public boolean hasNonPublicIp(long from, long to) {
+        if (nonPublicBucketIds == null) {
+            return false;
+        }
+        long fromBucket = Math.floorDiv(from, bucketSizeMs);
+        long toBucket = Math.floorDiv(to, bucketSizeMs);
+        for (int slot = 0; slot < nonPublicBucketIds.length; slot++) {
+            long bucketId = nonPublicBucketIds[slot];
+            if (bucketId != EMPTY && bucketId >= fromBucket && bucketId <= toBucket
+                    && nonPublicLast[slot] >= from && nonPublicFirst[slot] <= to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isSketchActive() {
+        return registers != null;
+    }
+
+    private void addNonPublic(long timestamp) {
+        if (nonPublicBucketIds == null) {
+            nonPublicBucketIds = new long[bucketCount()];
+            Arrays.fill(nonPublicBucketIds, EMPTY);
+            nonPublicFirst = new long[nonPublicBucketIds.length];
+            nonPublicLast = new long[nonPublicBucketIds.length];
+        }
+        long bucketId = Math.floorDiv(timestamp, bucketSizeMs);
+        int slot = (int) Math.floorMod(bucketId, (long) nonPublicBucketIds.length);
+        if (nonPublicBucketIds[slot] == bucketId) {
+            nonPublicFirst[slot] = Math.min(nonPublicFirst[slot], timestamp);
+            nonPublicLast[slot] = Math.max(nonPublicLast[slot], timestamp);
+            return;
+        }
+        if (nonPublicBucketIds[slot] != EMPTY && nonPublicBucketIds[slot] > bucketId) {
+            return; // slot já reaproveitado por um bucket mais novo
+        }
+        nonPublicBucketIds[slot] = bucketId;
+        nonPublicFirst[slot] = timestamp;
+        nonPublicLast[slot] = timestamp;
+    }
+
+    private int bucketCount() {
+        return (int) (windowSizeMs / bucketSizeMs) + 1; // +1 para o bucket parcial do início da janela
+    }
+
+    private void startSketch() {
+        int bucketCount = bucketCount();
+        sketchBucketIds = new long[bucketCount];
+        Arrays.fill(sketchBucketIds, EMPTY);
+        registers = new byte[bucketCount * REGISTERS];
+        for (int i = 0; i < size; i++) {
+            addToSketch(lastSeen[i], ips[i]);
+        }
+    }
+
+    private void addToSketch(long timestamp, int ip) {
+        long bucketId = Math.floorDiv(timestamp, bucketSizeMs);
+        int slot = (int) Math.floorMod(bucketId, (long) sketchBucketIds.length);
+        if (sketchBucketIds[slot] != bucketId) {
+            if (sketchBucketIds[slot] != EMPTY && sketchBucketIds[slot] > bucketId) {
+                return; // slot já reaproveitado por um bucket mais novo
+            }
+            sketchBucketIds[slot] = bucketId;
+            Arrays.fill(registers, slot * REGISTERS, (slot + 1) * REGISTERS, (byte) 0);
+        }
+        long hash = mix(ip);
+        int register = (int) (hash >>> (64 - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        int index = slot * REGISTERS + register;
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    private double sketchEstimate(long from, long to) {
+        long fromBucket = Math.floorDiv(from, bucketSizeMs);
+        long toBucket = Math.floorDiv(to, bucketSizeMs);
+        double sum = 0d;
+        int zeros = 0;
+        for (int register = 0; register < REGISTERS; register++) {
+            int max = 0;
+            for (int slot = 0; slot < sketchBucketIds.length; slot++) {
+                long bucketId = sketchBucketIds[slot];
+                if (bucketId != EMPTY && bucketId >= fromBucket && bucketId <= toBucket) {
+                    max = Math.max(max, registers[slot * REGISTERS + register]);
+                }
+            }
+            sum += 1d / (1L << max);
+            if (max == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5d * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros); // linear counting para cardinalidades baixas
+        }
+        return estimate;
+    }
+
+    /**
+     * Espalha a chave do IP pelos 64 bits (finalizador do SplitMix64): IPs vizinhos caem em registradores diferentes.
+     */
+    private static long mix(int ip) {
+        long z = ip * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,302 @@
+package szp.rafael.cct.stream.state;
+
+import szp.rafael.cct.utils.GeoPoint;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Agregado incremental por cliente: contagem, soma, menor e maior valor (centavos), primeiro/último timestamp
+ * e soma dos vetores unitários das localizações em buckets de tempo de tamanho fixo, organizados em anel.
+ *
+ * Cada slot do anel guarda o id do bucket a que pertence; quando o tempo avança e um bucket
+ * mais novo cai no mesmo slot, o antigo é descartado (expiração). As consultas percorrem
+ * no máximo {@code bucketCount} slots, independentemente de quantas transações o cliente fez.
+ *
+ * As bordas da janela têm a resolução de um bucket: o bucket que contém o início da janela
+ * é considerado por inteiro (assim como eventos fora de ordem dentro do bucket da transação atual).
+ * Para limites exatos, os buckets {@link Buckets#INSIDE inteiramente dentro} de [from, to] formam um subconjunto
+ * das transações da janela e os que {@link Buckets#TOUCHING a tocam} um superconjunto; as regras geográfica e de
+ * padrão decidem por eles e só varrem o histórico quando a decisão cai entre os dois.
+ *
+ * Opcionalmente carrega um {@link DistinctIpCounter} para a regra de IPs ({@link #withDistinctIps()}).
+ */
+public class RollingWindowAggregate {
+
+    public static final Duration DEFAULT_BUCKET_SIZE = Duration.ofMinutes(1);
+
+    public enum Buckets {
+        /** buckets com todas as transações dentro do intervalo: subconjunto da janela */
+        INSIDE,
+        /** buckets com alguma interseção com o intervalo: superconjunto da janela */
+        TOUCHING
+    }
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private long bucketSizeMs;
+    private long newestBucketId = EMPTY;
+    private long[] bucketIds;
+    private int[] counts;
+    private long[] sumsInMinorUnits;
+    private long[] minAmounts;
+    private long[] maxAmounts;
+    private long[] firstTimestamps;
+    private long[] lastTimestamps;
+    private double[] xSums;
+    private double[] ySums;
+    private double[] zSums;
+    private int[] withoutGeolocation;
+    private DistinctIpCounter distinctIps; // null se não configurado
+
+    // Construtor padrão (necessário para desserialização)
+    public RollingWindowAggregate() {
+    }
+
+    public RollingWindowAggregate(Duration windowSize, Duration bucketSize) {
+        this.bucketSizeMs = bucketSize.toMillis();
+        int bucketCount = (int) (windowSize.toMillis() / bucketSizeMs) + 1; // +1 para o bucket parcial do início da janela
+        this.bucketIds = new long[bucketCount];
+        this.counts = new int[bucketCount];
+        this.sumsInMinorUnits = new long[bucketCount];
+        this.minAmounts = new long[bucketCount];
+        this.maxAmounts = new long[bucketCount];
+        this.firstTimestamps = new long[bucketCount];
+        this.lastTimestamps = new long[bucketCount];
+        this.xSums = new double[bucketCount];
+        this.ySums = new double[bucketCount];
+        this.zSums = new double[bucketCount];
+        this.withoutGeolocation = new int[bucketCount];
+        Arrays.fill(bucketIds, EMPTY);
+    }
+
+    public static RollingWindowAggregate of(Duration windowSize) {
+        return new RollingWindowAggregate(windowSize, DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * Passa a contar IPs distintos na mesma janela e com os mesmos buckets.
+     */
+    public RollingWindowAggregate withDistinctIps() {
+        if (distinctIps == null) {
+            Duration windowSize = Duration.ofMillis((bucketIds.length - 1) * bucketSizeMs);
+            distinctIps = new DistinctIpCounter(windowSize, Duration.ofMillis(bucketSizeMs));
+        }
+        return this;
+    }
+
+    public DistinctIpCounter getDistinctIps() {
+        return distinctIps;
+    }
+
+    /**
+     * Registra uma transação com a localização e o IP, que só é usado se a contagem de IPs distintos estiver ligada.
+     *
+     * @param point localização, ou null se a transação não tem
+     */
+    public void add(long timestamp, long amountInMinorUnits, GeoPoint point, int ip, boolean publicIp) {
+        add(timestamp, amountInMinorUnits, point);
+        if (distinctIps != null) {
+            distinctIps.add(timestamp, ip, publicIp);
+        }
+    }
+
+    /**
+     * Registra uma transação sem localização.
+     */
+    public void add(long timestamp, long amountInMinorUnits) {
+        add(timestamp, amountInMinorUnits, null);
+    }
+
+    /**
+     * Registra uma transação. Eventos mais antigos que o anel consegue representar são ignorados.
+     *
+     * @param point localização, ou null se a transação não tem
+     */
+    public void add(long timestamp, long amountInMinorUnits, GeoPoint point) {
+        long bucketId = Math.floorDiv(timestamp, bucketSizeMs);
+        int slot = (int) Math.floorMod(bucketId, (long) bucketIds.length);
+        if (bucketIds[slot] != bucketId) {
+            if (bucketIds[slot] != EMPTY && bucketIds[slot] > bucketId) {
+                return; // slot já reaproveitado por um bucket mais novo
+            }
+            bucketIds[slot] = bucketId;
+            counts[slot] = 0;
+            sumsInMinorUnits[slot] = 0L;
+            minAmounts[slot] = Long.MAX_VALUE;
+            maxAmounts[slot] = Long.MIN_VALUE;
+            firstTimestamps[slot] = timestamp;
+            lastTimestamps[slot] = timestamp;
+            xSums[slot] = 0d;
+            ySums[slot] = 0d;
+            zSums[slot] = 0d;
+            withoutGeolocation[slot] = 0;
+        }
+        newestBucketId = Math.max(newestBucketId, bucketId);
+        counts[slot]++;
+        sumsInMinorUnits[slot] += amountInMinorUnits;
+        minAmounts[slot] = Math.min(minAmounts[slot], amountInMinorUnits);
+        maxAmounts[slot] = Math.max(maxAmounts[slot], amountInMinorUnits);
+        firstTimestamps[slot] = Math.min(firstTimestamps[slot], timestamp);
+        lastTimestamps[slot] = Math.max(lastTimestamps[slot], timestamp);
+        if (point != null) {
+            xSums[slot] += point.x();
+            ySums[slot] += point.y();
+            zSums[slot] += point.z();
+        } else {
+            withoutGeolocation[slot]++;
+        }
+    }
+
+    /**
+     * Se o anel ainda tem todos os buckets a partir de {@code from}; sem isso {@link Buckets#TOUCHING} não é
+     * um superconjunto da janela (transação atual muito atrasada em relação à mais nova do cliente).
+     */
+    public boolean covers(long from) {
+        return newestBucketId == EMPTY || Math.floorDiv(from, bucketSizeMs) > newestBucketId - bucketIds.length;
+    }
+
+    public int count(long from, long to) {
+        return count(from, to, Buckets.TOUCHING);
+    }
+
+    public int count(long from, long to, Buckets buckets) {
+        int count = 0;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, buckets)) {
+                count += counts[slot];
+            }
+        }
+        return count;
+    }
+
+    public long sumInMinorUnits(long from, long to) {
+        return sumInMinorUnits(from, to, Buckets.TOUCHING);
+    }
+
+    public long sumInMinorUnits(long from, long to, Buckets buckets) {
+        long sum = 0L;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, buckets)) {
+                sum += sumsInMinorUnits[slot];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return menor valor em centavos, ou {@link Long#MAX_VALUE} se vazio
+     */
+    public long minAmountInMinorUnits(long from, long to, Buckets buckets) {
+        long min = Long.MAX_VALUE;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, buckets)) {
+                min = Math.min(min, minAmounts[slot]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return maior valor em centavos, ou {@link Long#MIN_VALUE} se vazio
+     */
+    public long maxAmountInMinorUnits(long from, long to, Buckets buckets) {
+        long max = Long.MIN_VALUE;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, buckets)) {
+                max = Math.max(max, maxAmounts[slot]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return menor timestamp registrado no intervalo, ou {@link Long#MAX_VALUE} se vazio
+     */
+    public long firstTimestamp(long from, long to) {
+        long first = Long.MAX_VALUE;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, Buckets.TOUCHING)) {
+                first = Math.min(first, firstTimestamps[slot]);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return maior timestamp registrado no intervalo, ou {@link Long#MIN_VALUE} se vazio
+     */
+    public long lastTimestamp(long from, long to) {
+        long last = Long.MIN_VALUE;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, Buckets.TOUCHING)) {
+                last = Math.max(last, lastTimestamps[slot]);
+            }
+        }
+        return last;
+    }
+
+    public int countWithoutGeolocation(long from, long to, Buckets buckets) {
+        int count = 0;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, buckets)) {
+                count += withoutGeolocation[slot];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Limite inferior da soma das cordas de {@code point} até as transações da janela: pela desigualdade
+     * triangular, Σ|p - qᵢ| ≥ |n·p - Σqᵢ| sobre as transações com localização do subconjunto {@link Buckets#INSIDE}.
+     */
+    public double chordSumLowerBoundKm(long from, long to, GeoPoint point) {
+        int n = 0;
+        double sx = 0d, sy = 0d, sz = 0d;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, Buckets.INSIDE)) {
+                n += counts[slot] - withoutGeolocation[slot];
+                sx += xSums[slot];
+                sy += ySums[slot];
+                sz += zSums[slot];
+            }
+        }
+        double dx = n * point.x() - sx;
+        double dy = n * point.y() - sy;
+        double dz = n * point.z() - sz;
+        return EARTH_RADIUS_KM * Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Limite superior da soma das cordas de {@code point} até as transações da janela, sobre o superconjunto
+     * {@link Buckets#TOUCHING}: por Cauchy-Schwarz Σ|p - qᵢ| ≤ √(n·Σ|p - qᵢ|²), e com vetores unitários
+     * Σ|p - qᵢ|² = 2n - 2·p·Σqᵢ. A subtração perde precisão com n grande; o termo n²·1e-14 cobre o
+     * arredondamento (pior caso ~4n²·2⁻⁵²) com folga. Conta só as transações com localização e só vale com {@link #covers(long)}.
+     */
+    public double chordSumUpperBoundKm(long from, long to, GeoPoint point) {
+        int n = 0;
+        double sx = 0d, sy = 0d, sz = 0d;
+        for (int slot = 0; slot < bucketIds.length; slot++) {
+            if (matches(slot, from, to, Buckets.TOUCHING)) {
+                n += counts[slot] - withoutGeolocation[slot];
+                sx += xSums[slot];
+                sy += ySums[slot];
+                sz += zSums[slot];
+            }
+        }
+        double squares = Math.max(0d, 2d * n - 2d * (point.x() * sx + point.y() * sy + point.z() * sz));
+        return EARTH_RADIUS_KM * Math.sqrt(n * squares + (double) n * n * 1e-14);
+    }
+
+    private boolean matches(int slot, long from, long to, Buckets buckets) {
+        long bucketId = bucketIds[slot];
+        if (bucketId == EMPTY
+                || counts[slot] == 0
+                || bucketId < Math.floorDiv(from, bucketSizeMs)
+                || bucketId > Math.floorDiv(to, bucketSizeMs)) {
+            return false;
+        }
+        return buckets == Buckets.TOUCHING || (firstTimestamps[slot] >= from && lastTimestamps[slot] <= to);
+    }
+}
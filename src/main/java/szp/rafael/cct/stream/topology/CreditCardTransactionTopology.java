@@ -1,5 +1,6 @@
 package szp.rafael.cct.stream.topology;
 
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.StreamsBuilder;
@@ -20,10 +21,12 @@ import org.apache.kafka.streams.state.StoreBuilder;
 import org.apache.kafka.streams.state.Stores;
 import org.apache.kafka.streams.state.WindowStore;
 import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
 import szp.rafael.cct.serde.JSONSerdes;
 import szp.rafael.cct.serde.SerdeFactory;
+import szp.rafael.cct.serde.SerdeFormat;
 import szp.rafael.cct.stream.join.ProcessedClientCCJoiner;
 import szp.rafael.cct.stream.processor.GeoWindowCheck;
 import szp.rafael.cct.stream.processor.HighFrequencyWindowCheck;
@@ -57,8 +60,20 @@ public class CreditCardTransactionTopology {
 
 
     public static Topology build() {
+        return build(SerdeFormat.JSON);
+    }
+
+    /**
+     * @param internalSerdeFormat formato do tópico por cliente, dos repartitions, dos joins e das stores;
+     *                            os tópicos de entrada e saída continuam em JSON
+     */
+    public static Topology build(SerdeFormat internalSerdeFormat) {
         StreamsBuilder builder = new StreamsBuilder();
 
+        Serde<CreditCardTransaction> internalTransactionSerde = new SerdeFactory<CreditCardTransaction>().createSerde(CreditCardTransaction.class, internalSerdeFormat);
+        Serde<ProcessedClientCCTransaction> internalProcessedSerde = new SerdeFactory<ProcessedClientCCTransaction>().createSerde(ProcessedClientCCTransaction.class, internalSerdeFormat);
+        Serde<CCTransactionFootprint> footprintSerde = new SerdeFactory<CCTransactionFootprint>().createSerde(CCTransactionFootprint.class, internalSerdeFormat);
+
         Duration windowSize30min = Duration.ofMinutes(30);
 
         // Passo 1 - Capturando as transações
@@ -66,12 +81,12 @@ public class CreditCardTransactionTopology {
         KStream<String, CreditCardTransaction> transactionsStream = builder.stream(TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), getCreditCardTransactionSerde()));
         transactionsStream
                 .selectKey((key, transaction) -> transaction.getClientId(), Named.as("cc-tx-by-client"))
-                .to(CLIENT_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), getCreditCardTransactionSerde()));
+                .to(CLIENT_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), internalTransactionSerde));
 
 
         //Passo 2 - Como o chaveamento foi feito pela transaction ID, preciso fazer um rekey para um topico correto,
         // para que as transações de cada conta fiquem na mesma partição
-        KStream<String, CreditCardTransaction> transactionsByClientStream = builder.stream(CLIENT_TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), getCreditCardTransactionSerde()));
+        KStream<String, CreditCardTransaction> transactionsByClientStream = builder.stream(CLIENT_TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), internalTransactionSerde));
 
 
 //        transactionsByClientStream.peek((key, transaction) -> {
@@ -85,11 +100,11 @@ public class CreditCardTransactionTopology {
 
         Duration joinWindowSize = Duration.ofMinutes(1);
 
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> geoStore = createWindowStore(GEO_CC_STORE, joinWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> ipStore = createWindowStore(IP_CC_STORE, joinWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> patternStore = createWindowStore(PATTERN_CC_STORE, joinWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> velocityStore = createWindowStore(VELOCITY_CC_STORE, joinWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> highFreqStore = createWindowStore(HIGH_FREQ_CC_STORE, joinWindowSize);
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> geoStore = createWindowStore(GEO_CC_STORE, joinWindowSize, footprintSerde);
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> ipStore = createWindowStore(IP_CC_STORE, joinWindowSize, footprintSerde);
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> patternStore = createWindowStore(PATTERN_CC_STORE, joinWindowSize, footprintSerde);
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> velocityStore = createWindowStore(VELOCITY_CC_STORE, joinWindowSize, footprintSerde);
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> highFreqStore = createWindowStore(HIGH_FREQ_CC_STORE, joinWindowSize, footprintSerde);
 
         builder.addStateStore(geoStore);
         builder.addStateStore(ipStore);
@@ -118,12 +133,12 @@ public class CreditCardTransactionTopology {
 
         //Agora vamos fazer join
         Repartitioned<String, ProcessedClientCCTransaction> repartitionParams =
-                Repartitioned.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes());
+                Repartitioned.with(Serdes.String(), internalProcessedSerde);
         ProcessedClientCCJoiner joiner = new ProcessedClientCCJoiner();
         JoinWindows joinWindows = JoinWindows.ofTimeDifferenceAndGrace(Duration.ofMinutes(5), Duration.ofMinutes(5));
         StreamJoined<String, ProcessedClientCCTransaction, ProcessedClientCCTransaction> joinWith = StreamJoined.with(Serdes.String(),
-                getProcessedClientCCTransactionJSONSerdes(),
-                getProcessedClientCCTransactionJSONSerdes());
+                internalProcessedSerde,
+                internalProcessedSerde);
 
         //Aqui foi necessário reparticionar para uma nova chave, a transactionId
         //Se eu mantivesse o clientId, a cada join da janela ele irá gerar L x R registros sendo número de Left * Número de Right
@@ -161,8 +176,8 @@ public class CreditCardTransactionTopology {
                 ;
 
 
-        KStream<String, ProcessedClientCCTransaction> acceptedStream  = joined.filterNot((k, tx) -> tx.getFraudScore().compareTo(BigDecimal.ZERO) > 0);
-        KStream<String, ProcessedClientCCTransaction> refusedStream = joined.filter((k, tx) -> tx.getFraudScore().compareTo(BigDecimal.ZERO) > 0);
+        KStream<String, ProcessedClientCCTransaction> acceptedStream  = joined.filterNot((k, tx) -> tx.getFraudScoreThousandths() > 0);
+        KStream<String, ProcessedClientCCTransaction> refusedStream = joined.filter((k, tx) -> tx.getFraudScoreThousandths() > 0);
 
 
 //        joined.peek((k, v) -> {
@@ -192,11 +207,19 @@ public class CreditCardTransactionTopology {
         return new SerdeFactory<ProcessedClientCCTransaction>().createSerde(ProcessedClientCCTransaction.class);
     }
 
-    public static StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> createWindowStore(String storeName, Duration windowSize) {
+    public static JSONSerdes<CCTransactionFootprint> getCCTransactionFootprintSerde() {
+        return new SerdeFactory<CCTransactionFootprint>().createSerde(CCTransactionFootprint.class);
+    }
+
+    public static StoreBuilder<WindowStore<String, CCTransactionFootprint>> createWindowStore(String storeName, Duration windowSize) {
+        return createWindowStore(storeName, windowSize, getCCTransactionFootprintSerde());
+    }
+
+    public static StoreBuilder<WindowStore<String, CCTransactionFootprint>> createWindowStore(String storeName, Duration windowSize, Serde<CCTransactionFootprint> footprintSerde) {
         Map<String, String> changelogConfig = new HashMap<>();
         changelogConfig.put("min.insync.replicas", "1");
 
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> store =
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> store =
                 Stores.windowStoreBuilder(
                         Stores.persistentWindowStore(
                                 storeName,                                      // nome do store
@@ -205,7 +228,7 @@ public class CreditCardTransactionTopology {
                                 false                                                       // retain duplicates? (false = 1 valor por chave+janela)
                         ),
                         Serdes.String(),
-                        getProcessedClientCCTransactionJSONSerdes()
+                        footprintSerde
                 ).withLoggingEnabled(changelogConfig);
         return store;
 
@@ -16,26 +16,42 @@ import org.apache.kafka.streams.state.StoreBuilder;
 import org.apache.kafka.streams.state.Stores;
 import org.apache.kafka.streams.state.WindowStore;
 import org.slf4j.Logger;
+import szp.rafael.cct.model.creditCard.CCTransactionFootprint;
 import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.FraudAggregate;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.model.creditCard.RuleResult;
 import szp.rafael.cct.serde.JSONDeserializer;
 import szp.rafael.cct.serde.JsonSerializer;
+import szp.rafael.cct.serde.SerdeFactory;
+import szp.rafael.cct.serde.SerdeFormat;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor;
 import szp.rafael.cct.stream.processor.CCTxMerger;
+import szp.rafael.cct.stream.processor.ClientHistoryProcessor;
+import szp.rafael.cct.stream.processor.CompositeWindowCheck;
+import szp.rafael.cct.stream.processor.FraudHeaders;
+import szp.rafael.cct.stream.processor.FraudRule;
 import szp.rafael.cct.stream.processor.GeoWindowCheck;
 import szp.rafael.cct.stream.processor.HighFrequencyWindowCheck;
 import szp.rafael.cct.stream.processor.MultipleIPWindowCheck;
 import szp.rafael.cct.stream.processor.PatternWindowCheck;
+import szp.rafael.cct.stream.processor.RuleResultDecoder;
 import szp.rafael.cct.stream.processor.VelocityWindowCheck;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.utils.IpClassifier;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class CreditCardTransactionTopologyFinal {
 
     public static final String FRAUD_AGG_STORE = "fraud-agg-store";
+    public static final String FRAUD_AGG_DEADLINE_STORE = "fraud-agg-deadline-store";
+    public static final String FRAUD_AGG_PENDING_STORE = "fraud-agg-pending-store";
     public static final String CC_TX_MERGE = "cc-tx-merge";
     static Logger logger = org.slf4j.LoggerFactory.getLogger(CreditCardTransactionTopologyFinal.class);
 
@@ -46,124 +62,257 @@ public class CreditCardTransactionTopologyFinal {
     public static final String PATTERN_CC_STORE = "pattern-cc-store";
     public static final String VELOCITY_CC_STORE = "velocity-cc-store";
     public static final String HIGH_FREQ_CC_STORE = "high-freq-cc-store";
+    public static final String CLIENT_HISTORY_STORE = "client-history-store";
+    public static final String ROLLING_AGGREGATE_STORE = "rolling-aggregate-store";
+    public static final String DECAYING_COUNTERS_STORE = "decaying-counters-store";
+    public static final String CLIENT_HISTORY_BUFFER_STORE = "client-history-buffer-store";
 
     public static final String PROCESSED_CREDIT_CARD_TRANSACTIONS_TOPIC = "processed-credit-card-transactions";
     public static final String REFUSED_CREDIT_CARD_TRANSACTIONS_TOPIC = "refused-credit-card-transactions";
 
 
     public static Topology build() {
+        return build(TopologyOptions.defaults());
+    }
+
+    public static Topology build(TopologyOptions options) {
         StreamsBuilder builder = new StreamsBuilder();
 
+        // Tópicos de entrada/saída usam o formato externo; tópicos internos e changelogs, o interno
+        Serde<CreditCardTransaction> externalTransactionSerde = getCreditCardTransactionSerde(options.getExternalSerdeFormat());
+        Serde<CreditCardTransaction> internalTransactionSerde = getCreditCardTransactionSerde(options.getInternalSerdeFormat());
+        Serde<ProcessedClientCCTransaction> externalProcessedSerde = getProcessedClientCCTransactionSerde(options.getExternalSerdeFormat());
+        Serde<ProcessedClientCCTransaction> internalProcessedSerde = getProcessedClientCCTransactionSerde(options.getInternalSerdeFormat());
+        Serde<CCTransactionFootprint> footprintSerde = getCCTransactionFootprintSerde(options.getInternalSerdeFormat());
+
        /*
        * Passo 1: Entrada e Chaveamento por clientId
        * */
 
-        KStream<String, CreditCardTransaction> transactionsStream = builder.stream(TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), getCreditCardTransactionSerde()));
+        KStream<String, CreditCardTransaction> transactionsStream = builder.stream(TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), externalTransactionSerde));
         transactionsStream
                 .selectKey((key, transaction) -> transaction.getClientId(), Named.as("cc-tx-by-client"))
-                .to(CLIENT_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), getCreditCardTransactionSerde()));
+                .to(CLIENT_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), internalTransactionSerde));
 
 
 
-        KStream<String, CreditCardTransaction> transactionsByClientStream = builder.stream(CLIENT_TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), getCreditCardTransactionSerde()));
+        KStream<String, CreditCardTransaction> transactionsByClientStream = builder.stream(CLIENT_TRANSACTIONS_TOPIC, Consumed.with(Serdes.String(), internalTransactionSerde));
 
 
-        Map<String, String> changelogConfig = new HashMap<>();
-        changelogConfig.put("min.insync.replicas", "1");
-
         Duration analysisWindowSize = Duration.ofMinutes(30);
 
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> geoStore = createWindowStore(GEO_CC_STORE, analysisWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> ipStore = createWindowStore(IP_CC_STORE, analysisWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> patternStore = createWindowStore(PATTERN_CC_STORE, analysisWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> velocityStore = createWindowStore(VELOCITY_CC_STORE, analysisWindowSize);
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> highFreqStore = createWindowStore(HIGH_FREQ_CC_STORE, analysisWindowSize);
-        StoreBuilder<KeyValueStore<String, ProcessedClientCCTransaction>> fraudFlagsStore = Stores.keyValueStoreBuilder(
+        if (options.isCompositeRules()) {
+            /*
+            * Passo 2 (composto): um único fetch de histórico e todas as regras avaliadas em uma passada.
+            * Sai um registro por transação, já chaveado por transactionId, sem merge/repartition/CCTxMerger */
+            CompositeWindowCheck compositeRules;
+            if (options.isHistoryBuffer()) {
+                builder.addStateStore(createKeyValueStore(CLIENT_HISTORY_BUFFER_STORE, Serdes.ByteArray()));
+                compositeRules = new CompositeWindowCheck(CLIENT_HISTORY_BUFFER_STORE, createRules(CLIENT_HISTORY_BUFFER_STORE, options.getIpClassifier()))
+                        .withHistoryBuffer(CLIENT_HISTORY_BUFFER_STORE, options.getHistoryBufferCapacity());
+            } else {
+                builder.addStateStore(createWindowStore(CLIENT_HISTORY_STORE, analysisWindowSize, footprintSerde));
+                compositeRules = new CompositeWindowCheck(CLIENT_HISTORY_STORE, createRules(CLIENT_HISTORY_STORE, options.getIpClassifier()));
+            }
+            if (options.isRollingAggregates()) {
+                builder.addStateStore(createKeyValueStore(ROLLING_AGGREGATE_STORE, getRollingWindowAggregateSerde()));
+                compositeRules.withRollingAggregates(ROLLING_AGGREGATE_STORE)
+                        .withDistinctIpCounting(options.isDistinctIpCounting());
+            }
+            if (options.isDecayingCounters()) {
+                builder.addStateStore(createKeyValueStore(DECAYING_COUNTERS_STORE, Serdes.ByteArray()));
+                compositeRules.withDecayingCounters(DECAYING_COUNTERS_STORE, options.getDecayingHalfLives());
+            }
+
+            KStream<String, ProcessedClientCCTransaction> evaluatedStream = transactionsByClientStream
+                    .process(compositeRules, Named.as("composite-rules"), compositeRules.getStateStoreNames());
+
+            routeDecisions(evaluatedStream, externalProcessedSerde, options);
+            return builder.build();
+        }
+
+        StoreBuilder<KeyValueStore<String, FraudAggregate>> fraudFlagsStore = Stores.keyValueStoreBuilder(
                 Stores.persistentKeyValueStore(FRAUD_AGG_STORE),
                 Serdes.String(),
-                getProcessedClientCCTransactionJSONSerdes()
+                getFraudAggregateSerde(options.getInternalSerdeFormat())
         );
-
-        builder.addStateStore(geoStore);
-        builder.addStateStore(ipStore);
-        builder.addStateStore(patternStore);
-        builder.addStateStore(velocityStore);
-        builder.addStateStore(highFreqStore);
         builder.addStateStore(fraudFlagsStore);
 
    /*
    * Passo 2: Processamento Paralelo por Janela (Regras de Fraude)*/
-        KStream<String, ProcessedClientCCTransaction> geoTransactionStream = transactionsByClientStream
-                .process(new GeoWindowCheck(GEO_CC_STORE), GEO_CC_STORE);
-
-        KStream<String, ProcessedClientCCTransaction> ipTransactionStream = transactionsByClientStream
-                .process(new MultipleIPWindowCheck(IP_CC_STORE), IP_CC_STORE);
-
-        KStream<String, ProcessedClientCCTransaction> patternTransactionStream = transactionsByClientStream
-                .process(new PatternWindowCheck(PATTERN_CC_STORE), PATTERN_CC_STORE);
-
-        KStream<String, ProcessedClientCCTransaction> velocityTransactionStream = transactionsByClientStream
-                .process(new VelocityWindowCheck(VELOCITY_CC_STORE), VELOCITY_CC_STORE);
-
-        KStream<String, ProcessedClientCCTransaction> highFreqTransactionStream = transactionsByClientStream
-                .process(new HighFrequencyWindowCheck(HIGH_FREQ_CC_STORE), HIGH_FREQ_CC_STORE);
+        KStream<String, ProcessedClientCCTransaction> geoTransactionStream;
+        KStream<String, ProcessedClientCCTransaction> ipTransactionStream;
+        KStream<String, ProcessedClientCCTransaction> patternTransactionStream;
+        KStream<String, ProcessedClientCCTransaction> velocityTransactionStream;
+        KStream<String, ProcessedClientCCTransaction> highFreqTransactionStream;
+
+        if (options.isSharedHistoryStore()) {
+            // Uma única store de histórico: a transação é gravada/buscada uma vez e o mesmo histórico alimenta as 5 regras
+            builder.addStateStore(createWindowStore(CLIENT_HISTORY_STORE, analysisWindowSize, footprintSerde));
+
+            KStream<String, ProcessedClientCCTransaction> historyStream = transactionsByClientStream
+                    .process(new ClientHistoryProcessor(CLIENT_HISTORY_STORE), Named.as("client-history"), CLIENT_HISTORY_STORE);
+
+            geoTransactionStream = historyStream.processValues(new GeoWindowCheck(CLIENT_HISTORY_STORE).scoring(), Named.as("geo-rule"));
+            ipTransactionStream = historyStream.processValues(new MultipleIPWindowCheck(CLIENT_HISTORY_STORE, options.getIpClassifier()).scoring(), Named.as("ip-rule"));
+            patternTransactionStream = historyStream.processValues(new PatternWindowCheck(CLIENT_HISTORY_STORE).scoring(), Named.as("pattern-rule"));
+            velocityTransactionStream = historyStream.processValues(new VelocityWindowCheck(CLIENT_HISTORY_STORE).scoring(), Named.as("velocity-rule"));
+            highFreqTransactionStream = historyStream.processValues(new HighFrequencyWindowCheck(CLIENT_HISTORY_STORE).scoring(), Named.as("high-freq-rule"));
+        } else {
+            StoreBuilder<WindowStore<String, CCTransactionFootprint>> geoStore = createWindowStore(GEO_CC_STORE, analysisWindowSize, footprintSerde);
+            StoreBuilder<WindowStore<String, CCTransactionFootprint>> ipStore = createWindowStore(IP_CC_STORE, analysisWindowSize, footprintSerde);
+            StoreBuilder<WindowStore<String, CCTransactionFootprint>> patternStore = createWindowStore(PATTERN_CC_STORE, analysisWindowSize, footprintSerde);
+            StoreBuilder<WindowStore<String, CCTransactionFootprint>> velocityStore = createWindowStore(VELOCITY_CC_STORE, analysisWindowSize, footprintSerde);
+            StoreBuilder<WindowStore<String, CCTransactionFootprint>> highFreqStore = createWindowStore(HIGH_FREQ_CC_STORE, analysisWindowSize, footprintSerde);
+
+            builder.addStateStore(geoStore);
+            builder.addStateStore(ipStore);
+            builder.addStateStore(patternStore);
+            builder.addStateStore(velocityStore);
+            builder.addStateStore(highFreqStore);
+
+            geoTransactionStream = transactionsByClientStream
+                    .process(new GeoWindowCheck(GEO_CC_STORE), GEO_CC_STORE);
+
+            ipTransactionStream = transactionsByClientStream
+                    .process(new MultipleIPWindowCheck(IP_CC_STORE, options.getIpClassifier()), IP_CC_STORE);
+
+            patternTransactionStream = transactionsByClientStream
+                    .process(new PatternWindowCheck(PATTERN_CC_STORE), PATTERN_CC_STORE);
+
+            velocityTransactionStream = transactionsByClientStream
+                    .process(new VelocityWindowCheck(VELOCITY_CC_STORE), VELOCITY_CC_STORE);
+
+            highFreqTransactionStream = transactionsByClientStream
+                    .process(new HighFrequencyWindowCheck(HIGH_FREQ_CC_STORE), HIGH_FREQ_CC_STORE);
+        }
 
 
         /*
         * Passo 3: Otimização de IO (Merge-before-Repartition) */
 
 
-        Repartitioned<String, ProcessedClientCCTransaction> repartitionParams =
-                Repartitioned.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes()).withName("rekey-to-tx-id");
+        KStream<String, ProcessedClientCCTransaction> unionedByTxId;
+        if (options.isCompactRuleResults()) {
+            // só o resultado geográfico carrega a transação e o histórico; os demais levam apenas o score
+            Repartitioned<String, RuleResult> repartitionParams =
+                    Repartitioned.with(Serdes.String(), getRuleResultSerde(options.getInternalSerdeFormat())).withName("rekey-to-tx-id");
+
+            KStream<String, RuleResult> resultsByClientId = geoTransactionStream.mapValues(tx -> RuleResult.of(FraudRule.GEO.ordinal(), tx, true), Named.as("geo-result"))
+                    .merge(ipTransactionStream.mapValues(tx -> RuleResult.of(FraudRule.MULTIPLE_IP.ordinal(), tx, false), Named.as("ip-result")))
+                    .merge(patternTransactionStream.mapValues(tx -> RuleResult.of(FraudRule.PATTERN.ordinal(), tx, false), Named.as("pattern-result")))
+                    .merge(velocityTransactionStream.mapValues(tx -> RuleResult.of(FraudRule.VELOCITY.ordinal(), tx, false), Named.as("velocity-result")))
+                    .merge(highFreqTransactionStream.mapValues(tx -> RuleResult.of(FraudRule.HIGH_FREQUENCY.ordinal(), tx, false), Named.as("high-freq-result")));
 
-        // Aqui estou utilizando o merge em vez do join para evitar explosão de cardinalidade.
-        // Neste cenário é melhor o merge, pois preciso agregar posteriormente os resultados das análises de fraude.
-        //O processador CCTxMerger irá fazer as agregações (com janela de grace) somando o score das fraudes
-        KStream<String, ProcessedClientCCTransaction> unionedByClientId = geoTransactionStream
-                .merge(ipTransactionStream)
-                .merge(patternTransactionStream)
-                .merge(velocityTransactionStream)
-                .merge(highFreqTransactionStream);
+            unionedByTxId = resultsByClientId.selectKey((clientId, result) -> result.getTransactionId(), Named.as("rekey-to-tx-id"))
+                    .repartition(repartitionParams)
+                    .processValues(new RuleResultDecoder(), Named.as("decode-rule-result"));
+        } else {
+            Repartitioned<String, ProcessedClientCCTransaction> repartitionParams =
+                    Repartitioned.with(Serdes.String(), internalProcessedSerde).withName("rekey-to-tx-id");
 
-        KStream<String, ProcessedClientCCTransaction> unionedByTxId = unionedByClientId.selectKey((clientId, tx) -> tx.getCurrentClientCCTransaction().getTransactionId(), Named.as("rekey-to-tx-id"))
-                .repartition(repartitionParams);
+            // Aqui estou utilizando o merge em vez do join para evitar explosão de cardinalidade.
+            // Neste cenário é melhor o merge, pois preciso agregar posteriormente os resultados das análises de fraude.
+            //O processador CCTxMerger irá fazer as agregações (com janela de grace) somando o score das fraudes
+            KStream<String, ProcessedClientCCTransaction> unionedByClientId = geoTransactionStream
+                    .merge(ipTransactionStream)
+                    .merge(patternTransactionStream)
+                    .merge(velocityTransactionStream)
+                    .merge(highFreqTransactionStream);
+
+            unionedByTxId = unionedByClientId.selectKey((clientId, tx) -> tx.getCurrentClientCCTransaction().getTransactionId(), Named.as("rekey-to-tx-id"))
+                    .repartition(repartitionParams);
+        }
 
 
         // Juntando todos os resultados e fazendo uma agregação por uma tumbling window (5min)
-        KStream<String, ProcessedClientCCTransaction> mergeStream = unionedByTxId.process(
-                () -> new CCTxMerger(FRAUD_AGG_STORE),
-                Named.as("CCTxMergerProcessor"),
-                FRAUD_AGG_STORE
-        );
+        // ou, com conclusão antecipada, emitindo assim que os resultados de todas as regras chegarem
+        KStream<String, ProcessedClientCCTransaction> mergeStream;
+        // propagações pendentes do CCTxMerger: o cache junta as escritas por transactionId até o commit
+        builder.addStateStore(createKeyValueStore(FRAUD_AGG_PENDING_STORE, Serdes.Long()).withCachingEnabled());
+        if (options.isEagerMergerCompletion()) {
+            builder.addStateStore(createKeyValueStore(FRAUD_AGG_DEADLINE_STORE, Serdes.String()));
+            int expectedResults = createRules(CLIENT_HISTORY_STORE).size();
+            mergeStream = unionedByTxId.process(
+                    () -> new CCTxMerger(FRAUD_AGG_STORE, FRAUD_AGG_PENDING_STORE, FRAUD_AGG_DEADLINE_STORE, expectedResults),
+                    Named.as("CCTxMergerProcessor"),
+                    FRAUD_AGG_STORE, FRAUD_AGG_PENDING_STORE, FRAUD_AGG_DEADLINE_STORE
+            );
+        } else {
+            mergeStream = unionedByTxId.process(
+                    () -> new CCTxMerger(FRAUD_AGG_STORE, FRAUD_AGG_PENDING_STORE),
+                    Named.as("CCTxMergerProcessor"),
+                    FRAUD_AGG_STORE, FRAUD_AGG_PENDING_STORE
+            );
+        }
+
+        if (options.isDirectDecisionRouting()) {
+            // o CCTxMerger já emite no máximo uma decisão por transactionId a cada pontuação: as atualizações
+            // chegam aos tópicos de saída na mesma ordem que chegariam pelo toStream da KTable
+            routeDecisions(mergeStream, externalProcessedSerde, options);
+            return builder.build();
+        }
 
         //Aqui vou pulibc
-        mergeStream.to(CC_TX_MERGE, Produced.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes()));
+        mergeStream.to(CC_TX_MERGE, Produced.with(Serdes.String(), internalProcessedSerde));
 
 //        mergeStream.peek((k,v)-> {
 //            logger.debug("mergeStream k {} fraud{}",k,v.getCurrentClientCCTransaction().getTransactionId());
 //        });
 
-        KTable<String, ProcessedClientCCTransaction> consolidatedTable = builder.table(CC_TX_MERGE, Consumed.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes()));
+        KTable<String, ProcessedClientCCTransaction> consolidatedTable = builder.table(CC_TX_MERGE, Consumed.with(Serdes.String(), internalProcessedSerde));
 
         KStream<String, ProcessedClientCCTransaction> finalStream = consolidatedTable.toStream();
 
-        Map<String, KStream<String, ProcessedClientCCTransaction>> branches = finalStream.split(Named.as("EVALUATED_STREAM-"))
-                .branch((k, v) -> v.getFraudScore().compareTo(BigDecimal.ZERO) > 0, Branched.as("FRAUD"))
-                .defaultBranch(Branched.as("NOT_FRAUD"));
-
-
 //        finalStream.peek((key, value) ->{
 //            logger.debug("k: {} | fraudScore: {}", key,value.getFraudScore());
 //        });
 
-        branches.get("EVALUATED_STREAM-FRAUD").to(REFUSED_CREDIT_CARD_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes()));
-        branches.get("EVALUATED_STREAM-NOT_FRAUD").to(PROCESSED_CREDIT_CARD_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), getProcessedClientCCTransactionJSONSerdes()));
+        routeDecisions(finalStream, externalProcessedSerde, options);
 
 
         return builder.build();
     }
 
 
+    /**
+     * Regras de fraude avaliadas pela topologia, na ordem em que são aplicadas.
+     */
+    public static List<AbstractWindowProcessor> createRules(String storeName) {
+        return createRules(storeName, IpClassifier.specialRanges());
+    }
+
+    public static List<AbstractWindowProcessor> createRules(String storeName, IpClassifier ipClassifier) {
+        return List.of(
+                new GeoWindowCheck(storeName),
+                new MultipleIPWindowCheck(storeName, ipClassifier),
+                new PatternWindowCheck(storeName),
+                new VelocityWindowCheck(storeName),
+                new HighFrequencyWindowCheck(storeName)
+        );
+    }
+
+    private static void routeDecisions(KStream<String, ProcessedClientCCTransaction> evaluatedStream, Serde<ProcessedClientCCTransaction> outputSerde, TopologyOptions options) {
+        if (options.isHeaderDecisionRouting()) {
+            evaluatedStream.to((key, value, recordContext) -> {
+                Boolean refused = FraudHeaders.isRefused(recordContext.headers());
+                if (refused == null) {
+                    // registro sem headers (ex.: cc-tx-merge gravado antes dos headers existirem)
+                    refused = FraudHeaders.isRefused(value.getFraudScoreThousandths());
+                }
+                return refused ? REFUSED_CREDIT_CARD_TRANSACTIONS_TOPIC : PROCESSED_CREDIT_CARD_TRANSACTIONS_TOPIC;
+            }, Produced.with(Serdes.String(), outputSerde).withName("EVALUATED_STREAM-ROUTER"));
+            return;
+        }
+
+        Map<String, KStream<String, ProcessedClientCCTransaction>> branches = evaluatedStream.split(Named.as("EVALUATED_STREAM-"))
+                .branch((k, v) -> v.getFraudScoreThousandths() > 0, Branched.as("FRAUD"))
+                .defaultBranch(Branched.as("NOT_FRAUD"));
+
+        branches.get("EVALUATED_STREAM-FRAUD").to(REFUSED_CREDIT_CARD_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), outputSerde));
+        branches.get("EVALUATED_STREAM-NOT_FRAUD").to(PROCESSED_CREDIT_CARD_TRANSACTIONS_TOPIC, Produced.with(Serdes.String(), outputSerde));
+    }
+
     public static Serde<CreditCardTransaction> getCreditCardTransactionSerde() {
         Serde<CreditCardTransaction> txSerde = Serdes.serdeFrom(new JsonSerializer<>(), new JSONDeserializer<>(CreditCardTransaction.class));
         return txSerde;
@@ -174,14 +323,68 @@ public class CreditCardTransactionTopologyFinal {
         return txSerde;
     }
 
-    public static StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> createWindowStore(String storeName, Duration windowSize) {
+    public static Serde<CCTransactionFootprint> getCCTransactionFootprintSerde() {
+        Serde<CCTransactionFootprint> footprintSerde = Serdes.serdeFrom(new JsonSerializer<>(), new JSONDeserializer<>(CCTransactionFootprint.class));
+        return footprintSerde;
+    }
+
+    public static Serde<CreditCardTransaction> getCreditCardTransactionSerde(SerdeFormat format) {
+        return format == SerdeFormat.JSON ? getCreditCardTransactionSerde() : new SerdeFactory<CreditCardTransaction>().createSerde(CreditCardTransaction.class, format);
+    }
+
+    public static Serde<ProcessedClientCCTransaction> getProcessedClientCCTransactionSerde(SerdeFormat format) {
+        return format == SerdeFormat.JSON ? getProcessedClientCCTransactionJSONSerdes() : new SerdeFactory<ProcessedClientCCTransaction>().createSerde(ProcessedClientCCTransaction.class, format);
+    }
+
+    public static Serde<CCTransactionFootprint> getCCTransactionFootprintSerde(SerdeFormat format) {
+        return format == SerdeFormat.JSON ? getCCTransactionFootprintSerde() : new SerdeFactory<CCTransactionFootprint>().createSerde(CCTransactionFootprint.class, format);
+    }
+
+    public static Serde<FraudAggregate> getFraudAggregateSerde(SerdeFormat format) {
+        if (format == SerdeFormat.JSON) {
+            return Serdes.serdeFrom(new JsonSerializer<>(), new JSONDeserializer<>(FraudAggregate.class));
+        }
+        return new SerdeFactory<FraudAggregate>().createSerde(FraudAggregate.class, format);
+    }
+
+    public static Serde<RuleResult> getRuleResultSerde(SerdeFormat format) {
+        if (format == SerdeFormat.JSON) {
+            return Serdes.serdeFrom(new JsonSerializer<>(), new JSONDeserializer<>(RuleResult.class));
+        }
+        return new SerdeFactory<RuleResult>().createSerde(RuleResult.class, format);
+    }
+
+    public static Serde<RollingWindowAggregate> getRollingWindowAggregateSerde() {
+        Serde<RollingWindowAggregate> aggregateSerde = Serdes.serdeFrom(new JsonSerializer<>(), new JSONDeserializer<>(RollingWindowAggregate.class));
+        return aggregateSerde;
+    }
+
+    /**
+     * KeyValueStore persistente (com changelog) para estados incrementais por cliente.
+     */
+    public static <V> StoreBuilder<KeyValueStore<String, V>> createKeyValueStore(String storeName, Serde<V> valueSerde) {
+        Map<String, String> changelogConfig = new HashMap<>();
+        changelogConfig.put("min.insync.replicas", "1");
+
+        return Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(storeName),
+                Serdes.String(),
+                valueSerde
+        ).withLoggingEnabled(changelogConfig);
+    }
+
+    public static StoreBuilder<WindowStore<String, CCTransactionFootprint>> createWindowStore(String storeName, Duration windowSize) {
+        return createWindowStore(storeName, windowSize, getCCTransactionFootprintSerde());
+    }
+
+    public static StoreBuilder<WindowStore<String, CCTransactionFootprint>> createWindowStore(String storeName, Duration windowSize, Serde<CCTransactionFootprint> footprintSerde) {
         Map<String, String> changelogConfig = new HashMap<>();
         changelogConfig.put("min.insync.replicas", "1");
         changelogConfig.put("segment.bytes", "67108864 ");//64Mb - Afim de fazer compaction mais rapido
         changelogConfig.put("compression.type", "lz4 ");
         changelogConfig.put("min.cleanable.dirty.ratio", "0.35 ");
 
-        StoreBuilder<WindowStore<String, ProcessedClientCCTransaction>> store =
+        StoreBuilder<WindowStore<String, CCTransactionFootprint>> store =
                 Stores.windowStoreBuilder(
                         Stores.persistentWindowStore(
                                 storeName,                                      // nome do store
@@ -190,7 +393,7 @@ public class CreditCardTransactionTopologyFinal {
                                 false                                                       // retain duplicates? (false = 1 valor por chave+janela)
                         ),
                         Serdes.String(),
-                        getProcessedClientCCTransactionJSONSerdes()
+                        footprintSerde
                 ).withLoggingEnabled(changelogConfig);
         return store;
 
@@ -0,0 +1,238 @@
+package szp.rafael.cct.stream.topology;
+
+import szp.rafael.cct.serde.SerdeFormat;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.DecayingCounters;
+import szp.rafael.cct.utils.IpClassifier;
+
+import java.time.Duration;
+
+/**
+ * Opções de montagem da {@link CreditCardTransactionTopologyFinal}.
+ *
+ * O default reproduz a topologia original (uma WindowStore por regra).
+ */
+public class TopologyOptions {
+
+    private boolean sharedHistoryStore = false;
+    private boolean compositeRules = false;
+    private boolean rollingAggregates = false;
+    private boolean distinctIpCounting = false;
+    private boolean historyBuffer = false;
+    private boolean decayingCounters = false;
+    private Duration[] decayingHalfLives = DecayingCounters.DEFAULT_HALF_LIVES;
+    private int historyBufferCapacity = ClientHistoryBuffer.DEFAULT_CAPACITY;
+    private boolean eagerMergerCompletion = false;
+    private boolean directDecisionRouting = false;
+    private boolean headerDecisionRouting = false;
+    private boolean compactRuleResults = false;
+    private IpClassifier ipClassifier = IpClassifier.specialRanges();
+    private SerdeFormat internalSerdeFormat = SerdeFormat.JSON;
+    private SerdeFormat externalSerdeFormat = SerdeFormat.JSON;
+
+    public static TopologyOptions defaults() {
+        return new TopologyOptions();
+    }
+
+    /**
+     * Quando ligado, uma única WindowStore de histórico por cliente alimenta as cinco regras:
+     * a transação é gravada, buscada e enviada ao changelog uma única vez.
+     */
+    public TopologyOptions withSharedHistoryStore(boolean sharedHistoryStore) {
+        this.sharedHistoryStore = sharedHistoryStore;
+        return this;
+    }
+
+    public boolean isSharedHistoryStore() {
+        return sharedHistoryStore;
+    }
+
+    /**
+     * Quando ligado, um único processador composto avalia todas as regras sobre um único fetch de histórico
+     * e emite um registro por transação, sem merge, sem o repartition rekey-to-tx-id e sem o CCTxMerger.
+     * Implica uma única store de histórico (ignora {@link #withSharedHistoryStore}).
+     */
+    public TopologyOptions withCompositeRules(boolean compositeRules) {
+        this.compositeRules = compositeRules;
+        return this;
+    }
+
+    public boolean isCompositeRules() {
+        return compositeRules;
+    }
+
+    /**
+     * Mantém um agregado incremental (buckets de tempo) por cliente para as regras de velocidade e de alta
+     * frequência, que deixam de varrer o histórico. As regras geográfica e de padrão decidem pelos limites
+     * do agregado e só varrem o histórico quando a decisão cai entre eles, com as mesmas decisões da varredura.
+     * Só tem efeito com {@link #withCompositeRules}.
+     */
+    public TopologyOptions withRollingAggregates(boolean rollingAggregates) {
+        this.rollingAggregates = rollingAggregates;
+        return this;
+    }
+
+    public boolean isRollingAggregates() {
+        return rollingAggregates;
+    }
+
+    /**
+     * Soma ao agregado incremental uma contagem de IPs distintos por cliente (conjunto exato pequeno e,
+     * acima dele, HyperLogLog por bucket): a regra de IPs deixa de varrer o histórico e passa a limitar
+     * IPs distintos na janela. Só tem efeito com {@link #withRollingAggregates}.
+     */
+    public TopologyOptions withDistinctIpCounting(boolean distinctIpCounting) {
+        this.distinctIpCounting = distinctIpCounting;
+        return this;
+    }
+
+    public boolean isDistinctIpCounting() {
+        return distinctIpCounting;
+    }
+
+    /**
+     * Guarda o histórico de cada cliente como um {@link ClientHistoryBuffer} (arrays primitivos em ring buffer)
+     * serializado em um único byte[] de uma KeyValueStore, no lugar da WindowStore: um get pontual em vez de
+     * um iterator de range, e regras que percorrem o histórico sem alocar. Só tem efeito com {@link #withCompositeRules}.
+     * Clientes com mais de {@code capacity} transações na janela têm as mais antigas descartadas.
+     */
+    public TopologyOptions withHistoryBuffer(boolean historyBuffer) {
+        this.historyBuffer = historyBuffer;
+        return this;
+    }
+
+    public TopologyOptions withHistoryBufferCapacity(int historyBufferCapacity) {
+        this.historyBufferCapacity = historyBufferCapacity;
+        return this;
+    }
+
+    public boolean isHistoryBuffer() {
+        return historyBuffer;
+    }
+
+    public int getHistoryBufferCapacity() {
+        return historyBufferCapacity;
+    }
+
+    /**
+     * Modo alternativo de pontuação: velocidade e alta frequência decidem por somas e contagens com decaimento
+     * exponencial por cliente ({@link DecayingCounters}, algumas dezenas de bytes), sem a janela de 30 minutos.
+     * As decisões dessas duas regras mudam em relação à janela. Só tem efeito com {@link #withCompositeRules}.
+     */
+    public TopologyOptions withDecayingCounters(boolean decayingCounters) {
+        this.decayingCounters = decayingCounters;
+        return this;
+    }
+
+    /**
+     * Meias-vidas dos contadores decaídos (default 1, 5 e 30 minutos).
+     */
+    public TopologyOptions withDecayingHalfLives(Duration... decayingHalfLives) {
+        this.decayingHalfLives = decayingHalfLives.clone();
+        return this;
+    }
+
+    public boolean isDecayingCounters() {
+        return decayingCounters;
+    }
+
+    public Duration[] getDecayingHalfLives() {
+        return decayingHalfLives.clone();
+    }
+
+    /**
+     * O CCTxMerger emite a decisão de cada transação assim que chegam os resultados de todas as regras,
+     * em vez de esperar a pontuação de {@link szp.rafael.cct.stream.processor.CCTxMerger#GRACE_WINDOW_SIZE_MINUTES}
+     * minutos. Contaminações posteriores reemitem a decisão (upsert por transactionId no cc-tx-merge), e
+     * transações com resultados faltando saem ao expirar. Não se aplica a {@link #withCompositeRules}.
+     */
+    public TopologyOptions withEagerMergerCompletion(boolean eagerMergerCompletion) {
+        this.eagerMergerCompletion = eagerMergerCompletion;
+        return this;
+    }
+
+    public boolean isEagerMergerCompletion() {
+        return eagerMergerCompletion;
+    }
+
+    /**
+     * Separa recusadas/processadas direto da saída do CCTxMerger, sem gravar no cc-tx-merge e relê-lo como
+     * KTable: economiza a escrita e a leitura do tópico, a store da tabela e duas serializações por decisão.
+     * Quem consome o cc-tx-merge deixa de recebê-lo. Não se aplica a {@link #withCompositeRules}.
+     */
+    public TopologyOptions withDirectDecisionRouting(boolean directDecisionRouting) {
+        this.directDecisionRouting = directDecisionRouting;
+        return this;
+    }
+
+    public boolean isDirectDecisionRouting() {
+        return directDecisionRouting;
+    }
+
+    /**
+     * Escolhe o tópico de saída pelo header fraud-decision (ver FraudHeaders) em vez do score do payload.
+     * Os headers fraud-score, fraud-rules e fraud-decision são gravados em todas as decisões, com ou sem esta opção.
+     */
+    public TopologyOptions withHeaderDecisionRouting(boolean headerDecisionRouting) {
+        this.headerDecisionRouting = headerDecisionRouting;
+        return this;
+    }
+
+    public boolean isHeaderDecisionRouting() {
+        return headerDecisionRouting;
+    }
+
+    /**
+     * As regras enviam ao CCTxMerger um RuleResult (transactionId, clientId, regra, score, timestamp) em vez do
+     * ProcessedClientCCTransaction inteiro; só o resultado da regra geográfica carrega a transação e o histórico.
+     * O repartition rekey-to-tx-id passa a ter outro formato: trocar a opção exige resetar a aplicação.
+     * Não se aplica a {@link #withCompositeRules}.
+     */
+    public TopologyOptions withCompactRuleResults(boolean compactRuleResults) {
+        this.compactRuleResults = compactRuleResults;
+        return this;
+    }
+
+    public boolean isCompactRuleResults() {
+        return compactRuleResults;
+    }
+
+    /**
+     * Classificador de IPs usado pela regra de múltiplos IPs: faixas privadas/reservadas e, opcionalmente,
+     * uma lista de bloqueio (ex.: {@link IpClassifier#load(java.nio.file.Path)}). O default só tem as faixas especiais.
+     */
+    public TopologyOptions withIpClassifier(IpClassifier ipClassifier) {
+        this.ipClassifier = ipClassifier;
+        return this;
+    }
+
+    public IpClassifier getIpClassifier() {
+        return ipClassifier;
+    }
+
+    /**
+     * Formato do tópico por cliente, do repartition por transactionId, do cc-tx-merge, das WindowStores de histórico
+     * e da store de agregados do merger. As demais stores por cliente têm serde fixa, independente deste formato.
+     * Trocar o formato exige resetar a aplicação (tópicos internos e changelogs com o formato anterior).
+     */
+    public TopologyOptions withInternalSerdeFormat(SerdeFormat internalSerdeFormat) {
+        this.internalSerdeFormat = internalSerdeFormat;
+        return this;
+    }
+
+    public SerdeFormat getInternalSerdeFormat() {
+        return internalSerdeFormat;
+    }
+
+    /**
+     * Formato dos tópicos de entrada (transações) e de saída (processadas/recusadas).
+     */
+    public TopologyOptions withExternalSerdeFormat(SerdeFormat externalSerdeFormat) {
+        this.externalSerdeFormat = externalSerdeFormat;
+        return this;
+    }
+
+    public SerdeFormat getExternalSerdeFormat() {
+        return externalSerdeFormat;
+    }
+}
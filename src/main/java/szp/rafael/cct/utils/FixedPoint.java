@@ -0,0 +1,56 @@
+package szp.rafael.cct.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversões entre BigDecimal e representação em ponto fixo (long) usada nos estados internos
+ * e na aritmética do caminho quente: valores em centavos e scores de fraude em milésimos.
+ */
+public final class FixedPoint {
+
+    public static final int MONEY_SCALE = 2; // valores em centavos
+    public static final int SCORE_SCALE = 3; // scores em milésimos
+    private static final long SCORE_FACTOR = 1_000L;
+    // score zero sempre foi serializado como 0.00 (escala 2); os demais saem com escala 3
+    private static final BigDecimal ZERO_SCORE = BigDecimal.ZERO.setScale(MONEY_SCALE, RoundingMode.HALF_EVEN);
+
+    private FixedPoint() {}
+
+    /**
+     * Converte um valor monetário para a menor unidade (centavos), arredondando HALF_EVEN.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(MONEY_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, MONEY_SCALE);
+    }
+
+    /**
+     * Valor em centavos como double, sem passar por BigDecimal (a divisão é arredondada corretamente,
+     * então o resultado é o mesmo de {@code fromMinorUnits(minorUnits).doubleValue()}).
+     */
+    public static double minorUnitsToDouble(long minorUnits) {
+        return minorUnits / 100d;
+    }
+
+    public static long toThousandths(double score) {
+        return Math.round(score * SCORE_FACTOR);
+    }
+
+    public static long toThousandths(BigDecimal score) {
+        if (score == null) {
+            return 0L;
+        }
+        return score.setScale(SCORE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromThousandths(long thousandths) {
+        return thousandths == 0L ? ZERO_SCORE : BigDecimal.valueOf(thousandths, SCORE_SCALE);
+    }
+}
@@ -0,0 +1,14 @@
+package szp.rafael.cct.utils;
+
+/**
+ * Implementação alternativa dos laços em lote de {@link GeoUtils}, mesmo contrato de
+ * {@link GeoUtils#distancesKm} e {@link GeoUtils#chordsKm}.
+ */
+interface GeoBatchKernels {
+
+    void distancesKm(double[] latitudes, double[] longitudes, int length,
+                     double latitude, double longitude, double[] out);
+
+    void chordsKm(double[] xs, double[] ys, double[] zs, int from, int length,
+                  double x, double y, double z, double[] out, int outOffset);
+}
@@ -0,0 +1,58 @@
+package szp.rafael.cct.utils;
+
+/**
+ * Ponto geográfico com o vetor unitário (x, y, z) sobre a esfera já calculado.
+ *
+ * O seno/cosseno de latitude e longitude é pago uma única vez por ponto; a distância entre dois pontos
+ * sai da corda ({@link GeoUtils#chordKm}), com três subtrações, três multiplicações e uma raiz.
+ */
+public final class GeoPoint {
+
+    private final double latitude;
+    private final double longitude;
+    private final double x;
+    private final double y;
+    private final double z;
+
+    private GeoPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        this.x = cosLat * Math.cos(lon);
+        this.y = cosLat * Math.sin(lon);
+        this.z = Math.sin(lat);
+    }
+
+    public static GeoPoint of(double latitude, double longitude) {
+        return new GeoPoint(latitude, longitude);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double z() {
+        return z;
+    }
+
+    /**
+     * Comprimento da corda até o outro ponto, em km; nunca maior que a distância de haversine.
+     */
+    public double chordKm(GeoPoint other) {
+        return GeoUtils.chordKm(x, y, z, other.x, other.y, other.z);
+    }
+}
@@ -1,7 +1,11 @@
 package szp.rafael.cct.utils;
 
 public class GeoUtils {
-    private static final double RAIO_TERRA_KM = 6371.0; // Raio médio da Terra em km
+    static final double RAIO_TERRA_KM = 6371.0; // Raio médio da Terra em km
+
+    // GeoVectorKernels só existe no build com -Pvector e o módulo incubado só com --add-modules jdk.incubator.vector;
+    // faltando qualquer um dos dois os lotes usam o laço escalar
+    private static final GeoBatchKernels VECTOR_KERNELS = loadVectorKernels();
 
     /**
      * Calcula a distância entre dois pontos geográficos (em km)
@@ -26,6 +30,77 @@ public class GeoUtils {
         return RAIO_TERRA_KM * c;
     }
 
+    /**
+     * Comprimento da corda (linha reta pelo interior da esfera) entre dois vetores unitários, em km.
+     * É sempre menor ou igual à distância de haversine entre os mesmos pontos: d = 2R·asin(c / 2R) ≥ c.
+     * Para c ≤ 30 km a diferença relativa é menor que (c / 2R)² / 6 < 1e-6.
+     */
+    public static double chordKm(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        double dz = z1 - z2;
+        return RAIO_TERRA_KM * Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Distância de haversine (arco de círculo máximo) a partir do comprimento da corda: é o último passo
+     * da própria fórmula de haversine, em que √a = c / 2R.
+     */
+    public static double chordToArcKm(double chordKm) {
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1.0d, chordKm / (2 * RAIO_TERRA_KM)));
+    }
+
+    /**
+     * Se os cálculos em lote usam a Vector API (build com {@code -Pvector} e JVM iniciada com
+     * {@code --add-modules jdk.incubator.vector}).
+     */
+    public static boolean isVectorApiEnabled() {
+        return VECTOR_KERNELS != null;
+    }
+
+    private static GeoBatchKernels loadVectorKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (GeoBatchKernels) Class.forName("szp.rafael.cct.utils.GeoVectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Distância de haversine de cada ponto (latitudes[i], longitudes[i]) até o ponto de referência, em lote:
+     * out[i] para i em [0, length). Com a Vector API os lanes usam as versões vetoriais de seno, cosseno e
+     * arco-tangente, que podem diferir do {@link #calcularDistancia} em poucos ulps.
+     */
+    public static void distancesKm(double[] latitudes, double[] longitudes, int length,
+                                   double latitude, double longitude, double[] out) {
+        if (VECTOR_KERNELS != null) {
+            VECTOR_KERNELS.distancesKm(latitudes, longitudes, length, latitude, longitude, out);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            out[i] = calcularDistancia(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+    }
+
+    /**
+     * Corda de cada vetor unitário (xs, ys, zs)[from + i] até (x, y, z), em lote: out[outOffset + i] para
+     * i em [0, length). Só subtrações, multiplicações e raiz, na mesma ordem do {@link #chordKm}: o resultado
+     * vetorial é idêntico bit a bit ao escalar.
+     */
+    public static void chordsKm(double[] xs, double[] ys, double[] zs, int from, int length,
+                                double x, double y, double z, double[] out, int outOffset) {
+        if (VECTOR_KERNELS != null) {
+            VECTOR_KERNELS.chordsKm(xs, ys, zs, from, length, x, y, z, out, outOffset);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = chordKm(xs[from + i], ys[from + i], zs[from + i], x, y, z);
+        }
+    }
+
     public static void main(String[] args) {
         // Exemplo: São Paulo (-23.5505, -46.6333) → Rio de Janeiro (-22.9068, -43.1729)
         double distancia = calcularDistancia(-23.5505, -46.6333, -22.9068, -43.1729);
@@ -0,0 +1,310 @@
+package szp.rafael.cct.utils;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Classifica endereços IP por faixas CIDR (IPv4 e IPv6) em uma trie binária com compressão de caminho
+ * sobre os 128 bits de {@link IpLiteral}: a consulta devolve a faixa mais específica que contém o endereço,
+ * em no máximo um nó por bit de prefixo.
+ *
+ * Já vem com as faixas especiais da IANA (privadas e reservadas); listas de bloqueio (threat intel) são somadas
+ * com {@link #add(String, Category)} ou {@link #load(Path)}. Depois de montado, é só leitura e pode ser
+ * compartilhado entre as threads do Kafka Streams.
+ */
+public final class IpClassifier {
+
+    public enum Category {
+        PUBLIC,
+        PRIVATE,
+        RESERVED,
+        BLOCKLISTED
+    }
+
+    static Logger logger = org.slf4j.LoggerFactory.getLogger(IpClassifier.class);
+
+    private static final int IPV4_PREFIX_BITS = 96; // IPv4 fica em ::ffff:0:0/96
+
+    private static final String[] PRIVATE_RANGES = {
+            "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16",
+            "100.64.0.0/10",  // carrier-grade NAT
+            "169.254.0.0/16", // link-local
+            "fc00::/7",       // ULA
+            "fe80::/10",      // link-local
+            "fec0::/10"       // site-local (obsoleto)
+    };
+
+    private static final String[] RESERVED_RANGES = {
+            "0.0.0.0/8", "127.0.0.0/8",
+            "192.0.0.0/24",                                         // IETF
+            "192.0.2.0/24", "198.51.100.0/24", "203.0.113.0/24",    // documentação
+            "198.18.0.0/15",                                        // benchmark
+            "224.0.0.0/4",                                          // multicast
+            "240.0.0.0/4",                                          // futuro uso, inclui o broadcast
+            "::/128", "::1/128",
+            "64:ff9b:1::/48",                                       // tradução local
+            "100::/64",                                             // discard
+            "2001:2::/48",                                          // benchmark
+            "2001:db8::/32", "3fff::/20",                           // documentação
+            "ff00::/8"                                              // multicast
+    };
+
+    private static final IpClassifier SPECIAL_RANGES = new IpClassifier().freeze();
+
+    private Node root;
+    private int size;
+    private boolean frozen;
+
+    /**
+     * Classificador só com as faixas especiais; tudo o que não cai nelas é {@link Category#PUBLIC}.
+     */
+    public IpClassifier() {
+        for (String cidr : PRIVATE_RANGES) {
+            add(cidr, Category.PRIVATE);
+        }
+        for (String cidr : RESERVED_RANGES) {
+            add(cidr, Category.RESERVED);
+        }
+    }
+
+    /**
+     * Instância compartilhada só com as faixas especiais. É imutável: {@link #add(String, Category)} e
+     * {@link #addBlocklist(BufferedReader)} lançam UnsupportedOperationException; para somar uma lista de
+     * bloqueio use {@link #load(Path)} ou {@code new IpClassifier()}.
+     */
+    public static IpClassifier specialRanges() {
+        return SPECIAL_RANGES;
+    }
+
+    private IpClassifier freeze() {
+        frozen = true;
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("IpClassifier.specialRanges() é compartilhado e não aceita novas faixas");
+        }
+    }
+
+    /**
+     * Faixas especiais mais a lista de bloqueio do arquivo (ver {@link #addBlocklist(BufferedReader)}).
+     */
+    public static IpClassifier load(Path blocklist) {
+        IpClassifier classifier = new IpClassifier();
+        try (BufferedReader reader = Files.newBufferedReader(blocklist, StandardCharsets.UTF_8)) {
+            classifier.addBlocklist(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler a lista de bloqueio " + blocklist, e);
+        }
+        return classifier;
+    }
+
+    /**
+     * Um CIDR (ou endereço isolado) por linha; linhas vazias e comentários (#) são ignorados e linhas
+     * inválidas são registradas no log e puladas, para uma entrada ruim do feed não derrubar a carga.
+     *
+     * @return quantidade de faixas adicionadas
+     */
+    public int addBlocklist(BufferedReader reader) throws IOException {
+        checkNotFrozen();
+        int added = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String cidr = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (cidr.isEmpty()) {
+                continue;
+            }
+            if (add(cidr, Category.BLOCKLISTED)) {
+                added++;
+            } else {
+                logger.warn("Linha {} da lista de bloqueio ignorada: {}", lineNumber, cidr);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adiciona uma faixa ("a.b.c.d/n", "x::/n" ou um endereço isolado); uma faixa já existente troca de categoria.
+     *
+     * @return false se o texto não for um CIDR válido
+     * @throws UnsupportedOperationException na instância de {@link #specialRanges()}
+     */
+    public boolean add(String cidr, Category category) {
+        checkNotFrozen();
+        int slash = cidr.indexOf('/');
+        IpLiteral address = IpLiteral.parse(slash < 0 ? cidr : cidr.substring(0, slash));
+        if (address == null) {
+            return false;
+        }
+        boolean ipv4 = cidr.indexOf(':') < 0; // ::ffff:a.b.c.d/n é escrito com prefixo IPv6
+        int maxLength = ipv4 ? 32 : 128;
+        int prefixLength = maxLength;
+        if (slash >= 0) {
+            prefixLength = parsePrefixLength(cidr, slash + 1);
+            if (prefixLength < 0 || prefixLength > maxLength) {
+                return false;
+            }
+        }
+        if (ipv4) {
+            prefixLength += IPV4_PREFIX_BITS;
+        }
+        add(address.high(), address.low(), prefixLength, category);
+        return true;
+    }
+
+    public Category classify(IpLiteral address) {
+        return classify(address.high(), address.low());
+    }
+
+    public Category classify(long high, long low) {
+        Node node = root;
+        Category found = Category.PUBLIC;
+        while (node != null && commonPrefixLength(node.high, node.low, high, low) >= node.prefixLength) {
+            if (node.category != null) {
+                found = node.category;
+            }
+            if (node.prefixLength == 128) {
+                break;
+            }
+            node = bit(high, low, node.prefixLength) == 0 ? node.zero : node.one;
+        }
+        return found;
+    }
+
+    public boolean isPublic(IpLiteral address) {
+        return classify(address) == Category.PUBLIC;
+    }
+
+    /**
+     * Quantidade de faixas cadastradas (inclui as especiais).
+     */
+    public int size() {
+        return size;
+    }
+
+    private void add(long high, long low, int prefixLength, Category category) {
+        long maskedHigh = high & highMask(prefixLength);
+        long maskedLow = low & lowMask(prefixLength);
+        Node parent = null;
+        Node node = root;
+        while (node != null) {
+            int common = Math.min(commonPrefixLength(node.high, node.low, maskedHigh, maskedLow),
+                    Math.min(node.prefixLength, prefixLength));
+            if (common < node.prefixLength) {
+                // a nova faixa diverge (ou termina) no meio do caminho comprimido: divide o nó
+                Node split;
+                if (common == prefixLength) {
+                    split = new Node(maskedHigh, maskedLow, prefixLength, category);
+                    size++;
+                } else {
+                    split = new Node(maskedHigh & highMask(common), maskedLow & lowMask(common), common, null);
+                    Node leaf = new Node(maskedHigh, maskedLow, prefixLength, category);
+                    size++;
+                    split.setChild(bit(maskedHigh, maskedLow, common), leaf);
+                }
+                split.setChild(bit(node.high, node.low, split.prefixLength), node);
+                replace(parent, node, split);
+                return;
+            }
+            if (node.prefixLength == prefixLength) {
+                if (node.category == null) {
+                    size++;
+                }
+                node.category = category;
+                return;
+            }
+            int next = bit(maskedHigh, maskedLow, node.prefixLength);
+            Node child = next == 0 ? node.zero : node.one;
+            if (child == null) {
+                node.setChild(next, new Node(maskedHigh, maskedLow, prefixLength, category));
+                size++;
+                return;
+            }
+            parent = node;
+            node = child;
+        }
+        root = new Node(maskedHigh, maskedLow, prefixLength, category);
+        size++;
+    }
+
+    private void replace(Node parent, Node node, Node replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.zero == node) {
+            parent.zero = replacement;
+        } else {
+            parent.one = replacement;
+        }
+    }
+
+    private static int parsePrefixLength(String cidr, int start) {
+        if (start >= cidr.length() || cidr.length() - start > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < cidr.length(); i++) {
+            char c = cidr.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        long diff = high1 ^ high2;
+        if (diff != 0L) {
+            return Long.numberOfLeadingZeros(diff);
+        }
+        return 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    private static int bit(long high, long low, int index) {
+        return index < 64 ? (int) (high >>> (63 - index)) & 1 : (int) (low >>> (127 - index)) & 1;
+    }
+
+    private static long highMask(int prefixLength) {
+        if (prefixLength >= 64) return -1L;
+        return prefixLength == 0 ? 0L : -1L << (64 - prefixLength);
+    }
+
+    private static long lowMask(int prefixLength) {
+        if (prefixLength <= 64) return 0L;
+        return prefixLength == 128 ? -1L : -1L << (128 - prefixLength);
+    }
+
+    private static final class Node {
+        private final long high;
+        private final long low;
+        private final int prefixLength;
+        private Category category; // null: nó só de ramificação, sem faixa cadastrada
+        private Node zero;
+        private Node one;
+
+        private Node(long high, long low, int prefixLength, Category category) {
+            this.high = high;
+            this.low = low;
+            this.prefixLength = prefixLength;
+            this.category = category;
+        }
+
+        private void setChild(int bit, Node child) {
+            if (bit == 0) {
+                zero = child;
+            } else {
+                one = child;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package szp.rafael.cct.utils;
+
+/**
+ * Endereço IP já convertido para a forma primitiva de 128 bits (dois longs).
+ *
+ * IPv4 é guardado como IPv4-mapped (::ffff:a.b.c.d), então "1.2.3.4" e "::ffff:1.2.3.4" são iguais,
+ * como na normalização de {@link IpUtils#addressesEqual(String, String)}.
+ *
+ * Diferente de {@code InetAddress.getByName}, {@link #parse(String)} só aceita literais: nunca faz DNS,
+ * não lança exceção e não aloca nada além da própria instância.
+ */
+public final class IpLiteral {
+
+    private static final long IPV4_MAPPED_PREFIX = 0x0000_ffff_0000_0000L;
+
+    private final long high;
+    private final long low;
+
+    private IpLiteral(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Converte um literal IPv4 (a.b.c.d) ou IPv6 (com "::", IPv4 embutido, colchetes e zona opcionais).
+     *
+     * @return o endereço, ou null se o texto não for um literal válido
+     */
+    public static IpLiteral parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        int start = 0;
+        int end = text.length();
+        if (end >= 2 && text.charAt(0) == '[' && text.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        if (start >= end) {
+            return null;
+        }
+        if (indexOf(text, ':', start, end) < 0) {
+            long ipv4 = parseIPv4(text, start, end);
+            return ipv4 < 0 ? null : new IpLiteral(0L, IPV4_MAPPED_PREFIX | ipv4);
+        }
+        int zone = indexOf(text, '%', start, end);
+        if (zone >= 0) {
+            if (zone == end - 1) {
+                return null;
+            }
+            end = zone; // zona (fe80::1%eth0) não faz parte do endereço
+        }
+        return parseIPv6(text, start, end);
+    }
+
+    public long high() {
+        return high;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    public boolean isIPv4() {
+        return high == 0L && (low >>> 32) == 0xffffL;
+    }
+
+    /**
+     * Endereço IPv4 como int (a.b.c.d -> a << 24 | b << 16 | c << 8 | d); só faz sentido se {@link #isIPv4()}.
+     */
+    public int ipv4() {
+        return (int) low;
+    }
+
+    /**
+     * Fora das faixas privadas e reservadas de {@link IpClassifier#specialRanges()}.
+     */
+    public boolean isPublic() {
+        return IpClassifier.specialRanges().isPublic(this);
+    }
+
+    /**
+     * Decimal com ponto, exatamente quatro octetos, sem zeros à esquerda.
+     *
+     * @return o endereço nos 32 bits menos significativos, ou -1 se inválido
+     */
+    private static long parseIPv4(String text, int start, int end) {
+        long value = 0L;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits > 0 && octet == 0) return -1L; // zero à esquerda (ambíguo: octal)
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) return -1L;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                value = (value << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1L;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1L;
+        }
+        return (value << 8) | octet;
+    }
+
+    private static IpLiteral parseIPv6(String text, int start, int end) {
+        // grupos acumulados alinhados à direita; ao encontrar "::" o que veio antes vai para head
+        long accHigh = 0L;
+        long accLow = 0L;
+        long headHigh = 0L;
+        long headLow = 0L;
+        int headGroups = -1;
+        int groups = 0;
+        int i = start;
+        if (end - start >= 2 && text.charAt(start) == ':' && text.charAt(start + 1) == ':') {
+            headGroups = 0;
+            i += 2;
+        }
+        while (i < end) {
+            int tokenEnd = indexOf(text, ':', i, end);
+            if (tokenEnd < 0) {
+                tokenEnd = end;
+            }
+            if (tokenEnd == i) {
+                return null; // grupo vazio fora do "::"
+            }
+            if (indexOf(text, '.', i, tokenEnd) >= 0) {
+                // IPv4 embutido: só no fim, ocupando os dois últimos grupos
+                long ipv4 = tokenEnd == end && groups <= 6 ? parseIPv4(text, i, tokenEnd) : -1L;
+                if (ipv4 < 0) {
+                    return null;
+                }
+                accHigh = (accHigh << 32) | (accLow >>> 32);
+                accLow = (accLow << 32) | ipv4;
+                groups += 2;
+            } else {
+                if (tokenEnd - i > 4) {
+                    return null;
+                }
+                long group = 0L;
+                for (int j = i; j < tokenEnd; j++) {
+                    int digit = hexDigit(text.charAt(j));
+                    if (digit < 0) {
+                        return null;
+                    }
+                    group = (group << 4) | digit;
+                }
+                accHigh = (accHigh << 16) | (accLow >>> 48);
+                accLow = (accLow << 16) | group;
+                groups++;
+            }
+            if (groups > 8) {
+                return null;
+            }
+            if (tokenEnd == end) {
+                break;
+            }
+            i = tokenEnd + 1;
+            if (i < end && text.charAt(i) == ':') {
+                if (headGroups >= 0) {
+                    return null; // mais de um "::"
+                }
+                headGroups = groups;
+                headHigh = accHigh;
+                headLow = accLow;
+                accHigh = 0L;
+                accLow = 0L;
+                i++;
+            } else if (i == end) {
+                return null; // termina com um único ':'
+            }
+        }
+        if (headGroups < 0) {
+            return groups == 8 ? new IpLiteral(accHigh, accLow) : null;
+        }
+        if (groups > 7) {
+            return null;
+        }
+        // desloca os grupos anteriores ao "::" para o início e completa com zeros até o sufixo
+        int shift = 16 * (8 - headGroups);
+        long high;
+        long low;
+        if (shift == 128) {
+            high = 0L;
+            low = 0L;
+        } else if (shift >= 64) {
+            high = headLow << (shift - 64);
+            low = 0L;
+        } else {
+            high = (headHigh << shift) | (headLow >>> (64 - shift));
+            low = headLow << shift;
+        }
+        return new IpLiteral(high | accHigh, low | accLow);
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static int indexOf(String text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IpLiteral other)) return false;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        if (isIPv4()) {
+            int ip = ipv4();
+            return (ip >>> 24) + "." + ((ip >>> 16) & 0xff) + "." + ((ip >>> 8) & 0xff) + "." + (ip & 0xff);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int g = 0; g < 8; g++) {
+            long word = g < 4 ? high : low;
+            if (g > 0) sb.append(':');
+            sb.append(Long.toHexString((word >>> (48 - 16 * (g % 4))) & 0xffff));
+        }
+        return sb.toString();
+    }
+}
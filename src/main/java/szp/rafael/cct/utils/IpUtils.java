@@ -1,6 +1,5 @@
 package szp.rafael.cct.utils;
 
-import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
@@ -77,59 +76,12 @@ public final class IpUtils {
     }
 
     /**
-     * Testa se um InetAddress é considerado "público".
-     * Exclui: loopback, link-local, multicast, unspecified, site-local (RFC1918),
-     * IPv4 carrier-grade NAT (100.64.0.0/10), IPv4 "0/8", IPv4 broadcast, IPv6 ULA (fc00::/7), etc.
-     *
-     * Nota: não tenta cobrir absolutamente todas as faixas rsvd possíveis, mas cobre as mais relevantes.
+     * Testa se um InetAddress é considerado "público", isto é, fora das faixas privadas e reservadas
+     * de {@link IpClassifier#specialRanges()} (RFC1918, CGNAT, loopback, link-local, multicast, documentação, ULA etc.).
      */
     public static boolean isPublic(InetAddress addr) {
-        if (addr.isAnyLocalAddress() || addr.isLoopbackAddress() ||
-                addr.isLinkLocalAddress() || addr.isMulticastAddress() ||
-                addr.isSiteLocalAddress()) {
-            return false;
-        }
-
-        byte[] raw = addr.getAddress();
-
-        if (raw.length == 4) { // IPv4
-            int a = Byte.toUnsignedInt(raw[0]);
-            int b = Byte.toUnsignedInt(raw[1]);
-
-            // 10.0.0.0/8
-            if (a == 10) return false;
-            // 172.16.0.0/12 -> 172.16.0.0 - 172.31.255.255
-            if (a == 172 && (b >= 16 && b <= 31)) return false;
-            // 192.168.0.0/16
-            if (a == 192 && b == 168) return false;
-            // 127.0.0.0/8 loopback (already caught by isLoopbackAddress)
-            // 169.254.0.0/16 link-local (caught by isLinkLocalAddress)
-            // 100.64.0.0/10 carrier-grade NAT
-            if (a == 100 && (b >= 64 && b <= 127)) return false;
-            // 0.0.0.0/8 (invalid/unspecified)
-            if (a == 0) return false;
-            // 255.255.255.255 broadcast (rare) -> treat como não público
-            if (a == 255 && Byte.toUnsignedInt(raw[1]) == 255
-                    && Byte.toUnsignedInt(raw[2]) == 255 && Byte.toUnsignedInt(raw[3]) == 255) {
-                return false;
-            }
-            // 192.0.0.0/24 (IANA / special) - optional to block, leaving public for now
-            // Outros blocos reservados podem ser adicionados conforme necessário
-            return true;
-        } else { // IPv6 (16 bytes)
-            // Unique Local Addresses (fc00::/7) -> não público
-            int first = Byte.toUnsignedInt(raw[0]);
-            if ((first & 0xFE) == 0xFC) { // fc00::/7 => first 7 bits 1111110x (0xFC/0xFD)
-                return false;
-            }
-            // IPv4-mapped IPv6 handled by normalizedBytes when comparing,
-            // but here we should check the embedded IPv4 if needed.
-            if (addr instanceof Inet6Address) {
-                Inet6Address a6 = (Inet6Address) addr;
-                // link-local (::fe80::/10) and others already caught by isLinkLocalAddress
-            }
-            return true;
-        }
+        IpLiteral literal = IpLiteral.parse(addr.getHostAddress());
+        return literal != null && literal.isPublic();
     }
 
     // ---------- Exemplo de uso ----------
@@ -8,6 +8,7 @@ import org.apache.kafka.streams.TestInputTopic;
 import org.apache.kafka.streams.TestOutputTopic;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import szp.rafael.cct.model.creditCard.CardDetails;
@@ -15,7 +16,11 @@ import szp.rafael.cct.model.creditCard.CreditCardTransaction;
 import szp.rafael.cct.model.creditCard.Geolocation;
 import szp.rafael.cct.model.creditCard.IpData;
 import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.serde.SerdeFormat;
+import szp.rafael.cct.stream.processor.FraudHeaders;
+import szp.rafael.cct.stream.processor.FraudRule;
 import szp.rafael.cct.stream.topology.CreditCardTransactionTopologyFinal;
+import szp.rafael.cct.stream.topology.TopologyOptions;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -54,6 +59,122 @@ public class MainAppTestFinal {
 
         Topology build = CreditCardTransactionTopologyFinal.build();
         System.out.println(build.describe());
+        assertGeoRuleHeader(assertDecisions(build, 2));
+    }
+
+    @Test
+    public void should_process_account_transactions_with_shared_history_store(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withSharedHistoryStore(true));
+        assertGeoRuleHeader(assertDecisions(build, 2));
+    }
+
+    @Test
+    public void should_process_account_transactions_with_composite_rules(){
+
+        //sem o CCTxMerger não há contaminação retroativa: somente a transação em SP é recusada
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_composite_rules_and_rolling_aggregates(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withRollingAggregates(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_distinct_ip_counting(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withRollingAggregates(true).withDistinctIpCounting(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_history_buffer_and_rolling_aggregates(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withHistoryBuffer(true).withRollingAggregates(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_decaying_counters(){
+
+        // poucas transações de valor baixo: velocidade e alta frequência também não disparam no modo decaído
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withDecayingCounters(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_composite_rules_and_history_buffer(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompositeRules(true).withHistoryBuffer(true));
+        assertDecisions(build, 1);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_binary_internal_serde(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withInternalSerdeFormat(SerdeFormat.BINARY));
+        assertDecisions(build, 2);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_jackson_serdes(){
+
+        // entrada/saída continuam sendo escritas/lidas pelo serde Gson do teste: o formato é o mesmo
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults()
+                .withInternalSerdeFormat(SerdeFormat.JACKSON)
+                .withExternalSerdeFormat(SerdeFormat.JACKSON));
+        assertDecisions(build, 2);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_eager_merger_completion(){
+
+        // a transação contaminada sai primeiro como processada e depois, na verificação seguinte, como recusada
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withEagerMergerCompletion(true));
+        assertDecisions(build, 6, 2);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_direct_decision_routing(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withDirectDecisionRouting(true));
+        assertDecisions(build, 2);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_header_decision_routing(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withHeaderDecisionRouting(true));
+        assertDecisions(build, 2);
+    }
+
+    @Test
+    public void should_process_account_transactions_with_compact_rule_results(){
+
+        Topology build = CreditCardTransactionTopologyFinal.build(TopologyOptions.defaults().withCompactRuleResults(true));
+        assertDecisions(build, 2);
+    }
+
+    /**
+     * A transação em SP é recusada pela regra geográfica, e isso precisa chegar ao header fraud-rules.
+     */
+    private void assertGeoRuleHeader(List<TestRecord<String, ProcessedClientCCTransaction>> refused){
+        TestRecord<String, ProcessedClientCCTransaction> saoPaulo = refused.stream()
+                .filter(rfs -> rfs.getValue().getCurrentClientCCTransaction().getTransactionId().endsWith("_2_FRD"))
+                .findFirst().orElseThrow();
+        assertEquals(FraudHeaders.REFUSED, new String(saoPaulo.getHeaders().lastHeader(FraudHeaders.DECISION).value()));
+        assertEquals(FraudRule.GEO.mask(), FraudHeaders.firedRules(saoPaulo.getHeaders()) & FraudRule.GEO.mask());
+    }
+
+    private List<TestRecord<String, ProcessedClientCCTransaction>> assertDecisions(Topology build, int expectedRejectedCount){
+        return assertDecisions(build, -1, expectedRejectedCount);
+    }
+
+    private List<TestRecord<String, ProcessedClientCCTransaction>> assertDecisions(Topology build, int expectedCompletedCount, int expectedRejectedCount){
         try (final TopologyTestDriver testDriver = new TopologyTestDriver(build, streamProps)) {
             final TestInputTopic<String, CreditCardTransaction> ccTransactions = testDriver.createInputTopic(
                     CreditCardTransactionTopologyFinal.TRANSACTIONS_TOPIC,
@@ -93,13 +214,15 @@ public class MainAppTestFinal {
                     Serdes.String().deserializer(),
                     CreditCardTransactionTopologyFinal.getProcessedClientCCTransactionJSONSerdes().deserializer()
             );
-            final int expectedRejectedCount = 2;
-            final int expectedCompletedCount = transactions.size() - expectedRejectedCount;
+            if (expectedCompletedCount < 0) {
+                expectedCompletedCount = transactions.size() - expectedRejectedCount;
+            }
 
             testDriver.advanceWallClockTime(Duration.of(3, ChronoUnit.HOURS));
 
             List<ProcessedClientCCTransaction> processedTransactions = processedAccountTransactionsTopic.readValuesToList();
-            List<ProcessedClientCCTransaction> refusedTransactions = refusedTransactionsTopic.readValuesToList();
+            List<TestRecord<String, ProcessedClientCCTransaction>> refusedRecords = refusedTransactionsTopic.readRecordsToList();
+            List<ProcessedClientCCTransaction> refusedTransactions = refusedRecords.stream().map(TestRecord::getValue).toList();
 
             int processedCount = processedTransactions.size();
             System.out.println("processedTransactions = " + processedCount);
@@ -112,7 +235,7 @@ public class MainAppTestFinal {
 
             assertEquals(expectedCompletedCount, processedCount);
             assertEquals(expectedRejectedCount, refusedCount);
-
+            return refusedRecords;
         }
 
     }
@@ -0,0 +1,56 @@
+package szp.rafael.cct.serde;
+
+import org.junit.jupiter.api.Test;
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Os codecs Jackson escrevem exatamente os mesmos bytes que o Gson e leem o que ele escreve.
+ */
+public class ModelJacksonCodecsTest {
+
+    private static final CreditCardTransaction CURRENT = new CreditCardTransaction("01k8x", "ACC_01", new BigDecimal("190.0"), 1761937000000L,
+            new CardDetails("1234-5678-9012-3456", "teste", "123", "12/25"),
+            new Geolocation(-23.550519d, -46.633309d, "1id"),
+            new IpData("200.241.235.123"));
+
+    @Test
+    void testSameBytesAsGson() {
+        CreditCardTransaction previous = new CreditCardTransaction("01k8w", "ACC_01", BigDecimal.TEN, 1761936900000L, null, null, null);
+        LinkedHashSet<CreditCardTransaction> history = new LinkedHashSet<>();
+        history.add(CURRENT);
+        history.add(previous);
+        ProcessedClientCCTransaction withHistory = new ProcessedClientCCTransaction("ACC_01", CURRENT, history);
+        withHistory.setFraudScore(new BigDecimal("0.9"));
+
+        assertSameBytes(withHistory);
+        assertSameBytes(new ProcessedClientCCTransaction("ACC_01", CURRENT, new LinkedHashSet<>()));
+        assertSameBytes(new ProcessedClientCCTransaction("ACC_01", CURRENT, null));
+        assertSameBytes(new ProcessedClientCCTransaction());
+    }
+
+    @Test
+    void testNoHistoryRoundTrip() {
+        JacksonJSONSerdes<ProcessedClientCCTransaction> serdes = new JacksonJSONSerdes<>(ProcessedClientCCTransaction.class);
+        byte[] bytes = serdes.serializer().serialize("t", new ProcessedClientCCTransaction("ACC_01", CURRENT, null));
+        ProcessedClientCCTransaction read = serdes.deserializer().deserialize("t", bytes);
+        assertTrue(read.getLastCCTransactions().isEmpty());
+        assertEquals(CURRENT.getTransactionId(), read.getCurrentClientCCTransaction().getTransactionId());
+    }
+
+    private static void assertSameBytes(ProcessedClientCCTransaction value) {
+        byte[] gson = new JSONSerdes<>(ProcessedClientCCTransaction.class).serializer().serialize("t", value);
+        byte[] jackson = new JacksonJSONSerdes<>(ProcessedClientCCTransaction.class).serializer().serialize("t", value);
+        assertArrayEquals(gson, jackson, () -> new String(gson) + "\n" + new String(jackson));
+    }
+}
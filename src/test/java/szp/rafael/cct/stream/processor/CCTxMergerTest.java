@@ -0,0 +1,110 @@
+package szp.rafael.cct.stream.processor;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.FraudAggregate;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.serde.SerdeFormat;
+import szp.rafael.cct.stream.topology.CreditCardTransactionTopologyFinal;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resultados compactos cujo resultado carregador (com a transação e o histórico) atrasa ou não chega.
+ */
+public class CCTxMergerTest {
+
+    private static final long TIMESTAMP = 1_761_937_000_000L;
+    private static final long GRACE = Duration.ofMinutes(CCTxMerger.GRACE_WINDOW_SIZE_MINUTES).toMillis();
+
+    private MockProcessorContext<String, ProcessedClientCCTransaction> context;
+    private CCTxMerger merger;
+
+    @BeforeEach
+    void setup() {
+        context = new MockProcessorContext<>();
+        context.setCurrentSystemTimeMs(0L);
+        context.setCurrentStreamTimeMs(TIMESTAMP);
+        KeyValueStore<String, FraudAggregate> aggregates = Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore("agg"),
+                Serdes.String(), CreditCardTransactionTopologyFinal.getFraudAggregateSerde(SerdeFormat.JSON)).withLoggingDisabled().build();
+        KeyValueStore<String, Long> pending = Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore("pending"),
+                Serdes.String(), Serdes.Long()).withLoggingDisabled().build();
+        aggregates.init(context.getStateStoreContext(), aggregates);
+        pending.init(context.getStateStoreContext(), pending);
+        context.addStateStore(aggregates);
+        context.addStateStore(pending);
+        merger = new CCTxMerger("agg", "pending");
+        merger.init(context);
+    }
+
+    @Test
+    void testWaitsForCarrierUntilDeadline() {
+        merger.process(compact(FraudRule.MULTIPLE_IP, 300));
+        context.setCurrentSystemTimeMs(GRACE - 1);
+        merger.punctuate();
+        assertTrue(context.forwarded().isEmpty());
+
+        merger.process(carrier(0));
+        merger.punctuate();
+        List<MockProcessorContext.CapturedForward<? extends String, ? extends ProcessedClientCCTransaction>> forwarded = context.forwarded();
+        assertEquals(1, forwarded.size());
+        ProcessedClientCCTransaction decision = forwarded.get(0).record().value();
+        assertNotNull(decision.getCurrentClientCCTransaction());
+        assertEquals(300, decision.getFraudScoreThousandths());
+        assertEquals(TIMESTAMP, forwarded.get(0).record().timestamp());
+    }
+
+    @Test
+    void testEmitsPartialDecisionAtDeadline() {
+        merger.process(compact(FraudRule.MULTIPLE_IP, 300));
+        context.setCurrentSystemTimeMs(GRACE);
+        merger.punctuate();
+        List<MockProcessorContext.CapturedForward<? extends String, ? extends ProcessedClientCCTransaction>> forwarded = context.forwarded();
+        assertEquals(1, forwarded.size());
+        assertEquals("tx", forwarded.get(0).record().key());
+        ProcessedClientCCTransaction decision = forwarded.get(0).record().value();
+        assertEquals("client", decision.getClientId());
+        assertNull(decision.getCurrentClientCCTransaction());
+        assertEquals(300, decision.getFraudScoreThousandths());
+        assertEquals(FraudRule.MULTIPLE_IP.mask(), FraudHeaders.firedRules(forwarded.get(0).record().headers()));
+
+        context.resetForwards();
+        merger.punctuate();
+        assertTrue(context.forwarded().isEmpty());
+    }
+
+    private static Record<String, ProcessedClientCCTransaction> compact(FraudRule rule, long fraudScoreThousandths) {
+        ProcessedClientCCTransaction result = new ProcessedClientCCTransaction("client", null, new LinkedHashSet<>());
+        result.setFraudScoreThousandths(fraudScoreThousandths);
+        Record<String, ProcessedClientCCTransaction> record = new Record<>("tx", result, TIMESTAMP);
+        FraudHeaders.write(record.headers(), fraudScoreThousandths, rule.mask());
+        return record;
+    }
+
+    private static Record<String, ProcessedClientCCTransaction> carrier(long fraudScoreThousandths) {
+        CreditCardTransaction transaction = new CreditCardTransaction();
+        transaction.setTransactionId("tx");
+        transaction.setClientId("client");
+        transaction.setTimestamp(TIMESTAMP);
+        transaction.setAmount(BigDecimal.TEN);
+        ProcessedClientCCTransaction result = new ProcessedClientCCTransaction("client", transaction, new LinkedHashSet<>());
+        result.setFraudScoreThousandths(fraudScoreThousandths);
+        Record<String, ProcessedClientCCTransaction> record = new Record<>("tx", result, TIMESTAMP);
+        FraudHeaders.write(record.headers(), fraudScoreThousandths, 0);
+        return record;
+    }
+}
@@ -0,0 +1,215 @@
+package szp.rafael.cct.stream.processor;
+
+import org.junit.jupiter.api.Test;
+import org.apache.kafka.common.serialization.Serde;
+import szp.rafael.cct.model.creditCard.CardDetails;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.model.creditCard.Geolocation;
+import szp.rafael.cct.model.creditCard.IpData;
+import szp.rafael.cct.model.creditCard.ProcessedClientCCTransaction;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor.EvaluationType;
+import szp.rafael.cct.stream.state.ClientHistoryBuffer;
+import szp.rafael.cct.stream.state.RollingWindowAggregate;
+import szp.rafael.cct.stream.topology.CreditCardTransactionTopologyFinal;
+import szp.rafael.cct.utils.IpClassifier;
+import szp.rafael.cct.utils.IpLiteral;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mesma decisão com o histórico de objetos (como montado por {@link ClientHistory#fetch}) e com os estados
+ * primitivos/incrementais usados pelo {@link CompositeWindowCheck}.
+ */
+public class HistorySourceEquivalenceTest {
+
+    private static final long START = 1_761_937_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void testNonPublicCurrentIpWithHistory() {
+        MultipleIPWindowCheck rule = new MultipleIPWindowCheck("test");
+        for (String currentIp : new String[]{"10.0.0.7", "127.0.0.1", "not-an-ip", null}) {
+            List<CreditCardTransaction> previous = List.of(
+                    transaction("t0", START, "200.241.235.123"),
+                    transaction("t1", START + MINUTE, "200.241.235.123"));
+            CreditCardTransaction current = transaction("current", START + 2 * MINUTE, currentIp);
+            assertSameDecision(rule, previous, current, EvaluationType.FRAUD);
+            assertEquals(EvaluationType.FRAUD, rule.evaluate(distinctIpContext(previous, current)), "contador de IPs");
+        }
+        // sem transações na janela o IP atual não é avaliado
+        assertSameDecision(rule, List.of(), transaction("current", START, "10.0.0.7"), EvaluationType.NOT_FRAUD);
+        assertEquals(EvaluationType.NOT_FRAUD, rule.evaluate(distinctIpContext(List.of(), transaction("current", START, "10.0.0.7"))), "contador de IPs");
+    }
+
+    @Test
+    void testIpv6SpellingsAreTheSameIp() {
+        MultipleIPWindowCheck rule = new MultipleIPWindowCheck("test");
+        String[] spellings = {"2001:4860:4860::8888", "2001:4860:4860:0:0:0:0:8888", "2001:4860:4860:0000::8888",
+                "2001:4860:4860::0:8888", "[2001:4860:4860::8888]", "2001:4860:4860:0::8888"};
+        List<CreditCardTransaction> previous = new ArrayList<>();
+        for (int i = 0; i < spellings.length; i++) {
+            previous.add(transaction("t" + i, START + i * MINUTE, spellings[i]));
+        }
+        assertSameDecision(rule, previous, transaction("current", START + 10 * MINUTE, "2001:4860:4860::8888"), EvaluationType.NOT_FRAUD);
+        assertEquals(ClientHistoryBuffer.ipKey("::1"), ClientHistoryBuffer.ipKey("0:0:0:0:0:0:0:1"));
+        assertEquals(ClientHistoryBuffer.ipKey("200.241.235.123"), ClientHistoryBuffer.ipKey("::ffff:200.241.235.123"));
+    }
+
+    @Test
+    void testEntryWithoutLocationDoesNotHideDistantOnes() {
+        GeoWindowCheck rule = new GeoWindowCheck("test");
+        Geolocation goiania = new Geolocation(-16.665136d, -49.286041d, null);
+        Geolocation saoPaulo = new Geolocation(-23.550519d, -46.633309d, null);
+        CreditCardTransaction withoutLocation = transaction("t1", START + MINUTE, "200.241.235.123");
+        List<CreditCardTransaction> distant = List.of(
+                located(transaction("t0", START, "200.241.235.123"), goiania),
+                withoutLocation,
+                located(transaction("t2", START + 2 * MINUTE, "200.241.235.123"), goiania));
+        assertSameDecision(rule, distant, located(transaction("current", START + 3 * MINUTE, "200.241.235.123"), saoPaulo), EvaluationType.FRAUD);
+
+        List<CreditCardTransaction> near = List.of(
+                located(transaction("t0", START, "200.241.235.123"), saoPaulo),
+                withoutLocation);
+        assertSameDecision(rule, near, located(transaction("current", START + 3 * MINUTE, "200.241.235.123"), saoPaulo), EvaluationType.NOT_FRAUD);
+        assertSameDecision(rule, List.of(withoutLocation), located(transaction("current", START + 3 * MINUTE, "200.241.235.123"), saoPaulo), EvaluationType.NOT_FRAUD);
+    }
+
+    /**
+     * Clientes sintéticos (dispersão geográfica, intervalo, valores, transações sem localização e fora de ordem
+     * variados): as regras geográfica e de padrão com buffer + agregado decidem igual às com o buffer só, e os
+     * limites do agregado (serializado como na store) decidem sozinhos uma boa parte das avaliações.
+     */
+    @Test
+    void testAggregateBoundsAgreeWithBuffer() {
+        Random random = new Random(11);
+        AbstractWindowProcessor[] rules = {new GeoWindowCheck("test"), new PatternWindowCheck("test")};
+        Serde<RollingWindowAggregate> serde = CreditCardTransactionTopologyFinal.getRollingWindowAggregateSerde();
+        long window = AbstractWindowProcessor.WINDOW_SIZE.toMillis();
+        long[] mismatches = new long[rules.length];
+        long[] decidedByAggregate = new long[rules.length];
+        long[] frauds = new long[rules.length];
+        long evaluations = 0;
+        for (int client = 0; client < 300; client++) {
+            ClientHistoryBuffer buffer = new ClientHistoryBuffer(4096);
+            RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+            double latitude = random.nextDouble() * 120 - 60;
+            double longitude = random.nextDouble() * 300 - 150;
+            double spread = new double[]{0.001, 0.01, 0.05, 0.2, 1}[random.nextInt(5)];
+            int n = 5 + random.nextInt(random.nextBoolean() ? 40 : 400);
+            long gap = new long[]{1_000, 10_000, 60_000, 200_000}[random.nextInt(4)];
+            double amountScale = new double[]{1, 50, 600, 5_000}[random.nextInt(4)];
+            boolean withoutLocation = random.nextInt(6) == 0;
+            long timestamp = START;
+            for (int i = 0; i < n; i++) {
+                timestamp += (long) (random.nextDouble() * 2 * gap);
+                long eventTime = random.nextInt(10) == 0 ? timestamp - random.nextInt((int) (2 * window)) : timestamp;
+                CreditCardTransaction current = transaction("t" + i, eventTime, "200.1.2." + random.nextInt(5));
+                current.setAmount(BigDecimal.valueOf(Math.round(random.nextDouble() * amountScale * 100), 2));
+                current.setCardDetails(new CardDetails("card" + random.nextInt(2), "x", "visa", "12/30"));
+                if (!(withoutLocation && random.nextInt(5) == 0)) {
+                    located(current, new Geolocation(latitude + (random.nextDouble() - .5) * spread, longitude + (random.nextDouble() - .5) * spread, null));
+                }
+                long windowStart = eventTime - window;
+                buffer.evictBefore(windowStart); // como no processador
+                ClientHistoryBuffer history = ClientHistoryBuffer.fromBytes(buffer.toBytes());
+                RollingWindowAggregate stored = serde.deserializer().deserialize("t", serde.serializer().serialize("t", aggregate));
+                for (int k = 0; k < rules.length; k++) {
+                    if (rules[k] instanceof GeoWindowCheck && current.getGeolocation() == null) {
+                        continue;
+                    }
+                    EvaluationType expected = rules[k].evaluate(new EvaluationContext(current, windowStart, () -> {
+                        throw new IllegalStateException("o buffer não busca histórico");
+                    }).withHistoryBuffer(history));
+                    EvaluationType actual = rules[k].evaluate(new EvaluationContext(current, windowStart, () -> {
+                        throw new IllegalStateException("o buffer não busca histórico");
+                    }).withHistoryBuffer(history).withRollingAggregate(stored));
+                    try {
+                        rules[k].evaluate(new EvaluationContext(current, windowStart, () -> {
+                            throw new IllegalStateException("sem histórico");
+                        }).withRollingAggregate(stored));
+                        decidedByAggregate[k]++;
+                    } catch (IllegalStateException e) {
+                        // os limites não bastaram e a regra foi ao histórico
+                    }
+                    if (expected == EvaluationType.FRAUD) {
+                        frauds[k]++;
+                    }
+                    if (expected != actual) {
+                        mismatches[k]++;
+                    }
+                }
+                evaluations++;
+                buffer.add(current);
+                aggregate.add(current.getTimestamp(), current.getAmountInMinorUnits(),
+                        current.getGeolocation() != null ? current.getGeolocation().getPoint() : null);
+            }
+        }
+        assertArrayEquals(new long[rules.length], mismatches, "divergências em " + evaluations + " avaliações");
+        for (int k = 0; k < rules.length; k++) {
+            assertTrue(frauds[k] > 0, rules[k].getRule() + " nunca disparou");
+            assertTrue(decidedByAggregate[k] > evaluations / 10, rules[k].getRule() + " decidiu pelo agregado " + decidedByAggregate[k] + " de " + evaluations);
+        }
+    }
+
+    private static void assertSameDecision(AbstractWindowProcessor rule, List<CreditCardTransaction> previous,
+                                           CreditCardTransaction current, EvaluationType expected) {
+        assertEquals(expected, rule.evaluate(historyContext(previous, current)), "histórico");
+        assertEquals(expected, rule.evaluate(bufferContext(previous, current)), "buffer");
+        RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+        for (CreditCardTransaction transaction : previous) {
+            aggregate.add(transaction.getTimestamp(), transaction.getAmountInMinorUnits(),
+                    transaction.getGeolocation() != null ? transaction.getGeolocation().getPoint() : null);
+        }
+        assertEquals(expected, rule.evaluate(bufferContext(previous, current).withRollingAggregate(aggregate)), "agregado");
+    }
+
+    private static EvaluationContext historyContext(List<CreditCardTransaction> previous, CreditCardTransaction current) {
+        LinkedHashSet<CreditCardTransaction> lastTransactions = new LinkedHashSet<>();
+        if (!previous.isEmpty()) {
+            lastTransactions.add(current);
+            lastTransactions.addAll(previous);
+        }
+        return EvaluationContext.of(new ProcessedClientCCTransaction(current.getClientId(), current, lastTransactions));
+    }
+
+    private static EvaluationContext bufferContext(List<CreditCardTransaction> previous, CreditCardTransaction current) {
+        ClientHistoryBuffer buffer = new ClientHistoryBuffer(16);
+        previous.forEach(buffer::add);
+        return new EvaluationContext(current, current.getTimestamp() - AbstractWindowProcessor.WINDOW_SIZE.toMillis(), () -> {
+            throw new IllegalStateException("o buffer não busca histórico");
+        }).withHistoryBuffer(buffer);
+    }
+
+    private static EvaluationContext distinctIpContext(List<CreditCardTransaction> previous, CreditCardTransaction current) {
+        RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE).withDistinctIps();
+        for (CreditCardTransaction transaction : previous) {
+            IpLiteral address = transaction.getIpData() != null ? transaction.getIpData().getParsedAddress() : null;
+            aggregate.add(transaction.getTimestamp(), transaction.getAmountInMinorUnits(), null,
+                    ClientHistoryBuffer.ipKey(transaction.getIpData()), address != null && IpClassifier.specialRanges().isPublic(address));
+        }
+        return bufferContext(previous, current).withRollingAggregate(aggregate);
+    }
+
+    private static CreditCardTransaction located(CreditCardTransaction transaction, Geolocation geolocation) {
+        transaction.setGeolocation(geolocation);
+        return transaction;
+    }
+
+    private static CreditCardTransaction transaction(String id, long timestamp, String ip) {
+        CreditCardTransaction transaction = new CreditCardTransaction();
+        transaction.setTransactionId(id);
+        transaction.setClientId("client");
+        transaction.setTimestamp(timestamp);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setIpData(ip != null ? new IpData(ip) : null);
+        return transaction;
+    }
+}
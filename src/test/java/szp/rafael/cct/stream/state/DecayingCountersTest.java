@@ -0,0 +1,119 @@
+package szp.rafael.cct.stream.state;
+
+import org.junit.jupiter.api.Test;
+import szp.rafael.cct.model.creditCard.CreditCardTransaction;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor.EvaluationType;
+import szp.rafael.cct.stream.processor.EvaluationContext;
+import szp.rafael.cct.stream.processor.HighFrequencyWindowCheck;
+import szp.rafael.cct.stream.processor.VelocityWindowCheck;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decaimento, codificação e as regras de velocidade e alta frequência no modo com contadores decaídos.
+ */
+public class DecayingCountersTest {
+
+    private static final long START = 1_761_937_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void testHalvesAfterEachHalfLife() {
+        DecayingCounters counters = DecayingCounters.of();
+        counters.add(START, 10_000L);
+        assertEquals(0.5d, counters.count(0, START + MINUTE), 1e-12);
+        assertEquals(5_000d, counters.sumInMinorUnits(1, START + 5 * MINUTE), 1e-9);
+        assertEquals(0.25d, counters.count(2, START + 60 * MINUTE), 1e-12);
+        // consulta anterior ao último evento não decai
+        assertEquals(1d, counters.count(0, START - MINUTE));
+    }
+
+    @Test
+    void testSteadyStreamApproachesRateTimesMeanLife() {
+        DecayingCounters counters = new DecayingCounters(Duration.ofMinutes(5));
+        for (int i = 0; i < 600; i++) {
+            counters.add(START + i * 6_000L, 100L); // 10 por minuto
+        }
+        long now = START + 599 * 6_000L;
+        double expected = 10 * counters.meanLifeMinutes(0);
+        assertEquals(expected, counters.count(0, now), expected * 0.05);
+    }
+
+    @Test
+    void testOutOfOrderEventEntersDecayed() {
+        DecayingCounters counters = new DecayingCounters(Duration.ofMinutes(1));
+        counters.add(START + MINUTE, 100L);
+        counters.add(START, 100L);
+        assertEquals(1.5d, counters.count(0, START + MINUTE), 1e-12);
+        assertEquals(150d, counters.sumInMinorUnits(0, START + MINUTE), 1e-9);
+    }
+
+    @Test
+    void testLateQueryIncludesLaterEvents() {
+        DecayingCounters counters = new DecayingCounters(Duration.ofMinutes(1));
+        counters.add(START, 100L);
+        counters.add(START + 2 * MINUTE, 100L);
+        // uma transação atrasada em START + 1 min enxerga os totais em START + 2 min, inclusive o evento posterior
+        assertEquals(1.25d, counters.count(0, START + MINUTE), 1e-12);
+        assertEquals(125d, counters.sumInMinorUnits(0, START + MINUTE), 1e-9);
+    }
+
+    @Test
+    void testRoundTrip() {
+        DecayingCounters counters = DecayingCounters.of();
+        counters.add(START, 12_345L);
+        counters.add(START + 90_000L, 678L);
+        byte[] bytes = counters.toBytes();
+        assertEquals(10 + 24 * 3, bytes.length);
+        DecayingCounters decoded = DecayingCounters.fromBytes(bytes);
+        assertTrue(decoded.hasHalfLives(DecayingCounters.DEFAULT_HALF_LIVES));
+        assertFalse(decoded.hasHalfLives(Duration.ofMinutes(1)));
+        assertArrayEquals(bytes, decoded.toBytes());
+    }
+
+    @Test
+    void testBurstFiresHighFrequencyOnlyWhenDense() {
+        HighFrequencyWindowCheck rule = new HighFrequencyWindowCheck("test");
+        DecayingCounters burst = DecayingCounters.of();
+        for (int i = 0; i < 10; i++) {
+            burst.add(START + i * 1_000L, 1_000L);
+        }
+        assertEquals(EvaluationType.FRAUD, rule.evaluate(context(START + 10_000L, "10", burst)));
+
+        DecayingCounters spread = DecayingCounters.of();
+        for (int i = 0; i < 10; i++) {
+            spread.add(START + i * 5 * MINUTE, 1_000L);
+        }
+        assertEquals(EvaluationType.NOT_FRAUD, rule.evaluate(context(START + 50 * MINUTE, "10", spread)));
+    }
+
+    @Test
+    void testVelocityNeedsPreviousTransactions() {
+        VelocityWindowCheck rule = new VelocityWindowCheck("test");
+        assertEquals(EvaluationType.NOT_FRAUD, rule.evaluate(context(START, "5000", DecayingCounters.of())));
+
+        DecayingCounters counters = DecayingCounters.of();
+        counters.add(START, 80_000L);
+        // R$ 800 + R$ 900 em 10 s: (R$ 800 · 2^(-1/6) + R$ 900) / 1,44 min > R$ 1.000/min
+        assertEquals(EvaluationType.FRAUD, rule.evaluate(context(START + 10_000L, "900", counters)));
+        // uma hora depois o peso das anteriores já não forma taxa nas meias-vidas curtas
+        assertEquals(EvaluationType.NOT_FRAUD, rule.evaluate(context(START + 60 * MINUTE, "900", counters)));
+    }
+
+    private static EvaluationContext context(long timestamp, String amount, DecayingCounters counters) {
+        CreditCardTransaction current = new CreditCardTransaction();
+        current.setTransactionId("current");
+        current.setClientId("client");
+        current.setTimestamp(timestamp);
+        current.setAmount(new BigDecimal(amount));
+        return new EvaluationContext(current, timestamp - Duration.ofMinutes(30).toMillis(), () -> {
+            throw new IllegalStateException("o modo decaído não busca histórico");
+        }).withDecayingCounters(counters);
+    }
+}
@@ -0,0 +1,130 @@
+package szp.rafael.cct.stream.state;
+
+import org.junit.jupiter.api.Test;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor;
+import szp.rafael.cct.stream.processor.MultipleIPWindowCheck;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Erro da contagem de IPs distintos: exata em torno do limite da regra de IPs e dentro do erro esperado
+ * do HyperLogLog acima da capacidade exata.
+ */
+public class DistinctIpCounterTest {
+
+    private static final long WINDOW_MS = AbstractWindowProcessor.WINDOW_SIZE.toMillis();
+    private static final long START = 1_761_937_000_000L;
+
+    private static DistinctIpCounter newCounter() {
+        return new DistinctIpCounter(AbstractWindowProcessor.WINDOW_SIZE, Duration.ofMinutes(1));
+    }
+
+    /**
+     * Adiciona {@code distinct} IPs aleatórios espalhados pela janela e devolve o timestamp final.
+     */
+    private static long fill(DistinctIpCounter counter, Random random, int distinct) {
+        long step = WINDOW_MS / (distinct + 1);
+        for (int i = 0; i < distinct; i++) {
+            counter.add(START + i * step, random.nextInt(), true);
+        }
+        return START + distinct * step;
+    }
+
+    @Test
+    void testExactAroundRuleThreshold() {
+        Random random = new Random(42);
+        int threshold = MultipleIPWindowCheck.MAX_DIFFERENT_IP_ADDRESSESES;
+        for (int distinct = 0; distinct <= threshold + 2; distinct++) {
+            for (int trial = 0; trial < 1_000; trial++) {
+                DistinctIpCounter counter = newCounter();
+                long now = fill(counter, random, distinct);
+                assertEquals(distinct, counter.estimate(now - WINDOW_MS, now));
+                assertFalse(counter.isSketchActive());
+            }
+        }
+    }
+
+    @Test
+    void testExactUpToCapacity() {
+        Random random = new Random(7);
+        DistinctIpCounter counter = newCounter();
+        long now = fill(counter, random, DistinctIpCounter.EXACT_CAPACITY);
+        assertEquals(DistinctIpCounter.EXACT_CAPACITY, counter.estimate(now - WINDOW_MS, now));
+        assertTrue(counter.isExact(now - WINDOW_MS));
+    }
+
+    @Test
+    void testRepeatedIpsAndExclusion() {
+        DistinctIpCounter counter = newCounter();
+        for (int i = 0; i < 100; i++) {
+            counter.add(START + i * 1_000L, i % 3, true);
+        }
+        long now = START + 100 * 1_000L;
+        assertEquals(3, counter.estimate(now - WINDOW_MS, now));
+        assertEquals(2, counter.estimateExcluding(now - WINDOW_MS, now, 1));
+        assertEquals(3, counter.estimateExcluding(now - WINDOW_MS, now, 99));
+    }
+
+    @Test
+    void testExpiresWithWindow() {
+        DistinctIpCounter counter = newCounter();
+        for (int ip = 1; ip <= 10; ip++) {
+            counter.add(START + ip, ip, ip != 3);
+        }
+        long later = START + WINDOW_MS + 60_000L;
+        counter.add(later, 11, true);
+        assertEquals(1, counter.estimate(later - WINDOW_MS, later));
+        assertFalse(counter.hasNonPublicIp(later - WINDOW_MS, later));
+        assertTrue(counter.hasNonPublicIp(START, START + 10));
+    }
+
+    @Test
+    void testLaterNonPublicIpDoesNotHideEarlierOne() {
+        DistinctIpCounter counter = newCounter();
+        counter.add(START, 1, false);
+        counter.add(START + 10 * 60_000L, 2, false);
+        counter.add(START + 5 * 60_000L, 3, true);
+        // transação atrasada: a janela dela termina antes do segundo IP não público
+        assertTrue(counter.hasNonPublicIp(START + 60_000L - WINDOW_MS, START + 60_000L));
+        assertTrue(counter.hasNonPublicIp(START, START));
+        assertFalse(counter.hasNonPublicIp(START + 1, START + 5 * 60_000L));
+        assertTrue(counter.hasNonPublicIp(START + 1, START + 10 * 60_000L));
+    }
+
+    @Test
+    void testSketchErrorAboveCapacity() {
+        Random random = new Random(1234);
+        int trials = 200;
+        for (int distinct : new int[]{100, 1_000, 5_000}) {
+            double sumError = 0d;
+            double maxError = 0d;
+            for (int trial = 0; trial < trials; trial++) {
+                DistinctIpCounter counter = newCounter();
+                long now = fill(counter, random, distinct);
+                assertTrue(counter.isSketchActive());
+                double error = Math.abs(counter.estimate(now - WINDOW_MS, now) - distinct) / (double) distinct;
+                sumError += error;
+                maxError = Math.max(maxError, error);
+            }
+            // 64 registradores: erro padrão ~13%, erro absoluto médio ~10%
+            assertTrue(sumError / trials < 0.15, "erro médio " + sumError / trials + " para " + distinct);
+            assertTrue(maxError < 0.6, "erro máximo " + maxError + " para " + distinct);
+        }
+    }
+
+    @Test
+    void testNeverBelowThresholdOnceAboveCapacity() {
+        Random random = new Random(99);
+        for (int trial = 0; trial < 500; trial++) {
+            DistinctIpCounter counter = newCounter();
+            int distinct = DistinctIpCounter.EXACT_CAPACITY + 1 + random.nextInt(200);
+            long now = fill(counter, random, distinct);
+            assertTrue(counter.estimate(now - WINDOW_MS, now) > MultipleIPWindowCheck.MAX_DIFFERENT_IP_ADDRESSESES);
+        }
+    }
+}
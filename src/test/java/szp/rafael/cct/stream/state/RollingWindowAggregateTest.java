@@ -0,0 +1,86 @@
+package szp.rafael.cct.stream.state;
+
+import org.junit.jupiter.api.Test;
+import szp.rafael.cct.stream.processor.AbstractWindowProcessor;
+import szp.rafael.cct.stream.state.RollingWindowAggregate.Buckets;
+import szp.rafael.cct.utils.GeoPoint;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Limites do agregado (subconjunto/superconjunto) contra a varredura das transações.
+ */
+public class RollingWindowAggregateTest {
+
+    private static final long WINDOW_MS = AbstractWindowProcessor.WINDOW_SIZE.toMillis();
+    private static final long START = 1_761_937_000_000L;
+
+    @Test
+    void testWindowBoundsContainScan() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 200; trial++) {
+            RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+            int n = 1 + random.nextInt(300);
+            long[] timestamps = new long[n];
+            long[] amounts = new long[n];
+            GeoPoint[] points = new GeoPoint[n];
+            for (int i = 0; i < n; i++) {
+                timestamps[i] = START + (long) (random.nextDouble() * 2 * WINDOW_MS);
+                amounts[i] = random.nextInt(100_000);
+                points[i] = GeoPoint.of(-23.55 + random.nextDouble() * 0.2, -46.63 + random.nextDouble() * 0.2);
+                aggregate.add(timestamps[i], amounts[i], points[i]);
+            }
+            long to = START + WINDOW_MS + random.nextInt((int) WINDOW_MS);
+            long from = to - WINDOW_MS;
+            GeoPoint current = GeoPoint.of(-23.5, -46.6);
+            int count = 0;
+            long sum = 0L;
+            long min = Long.MAX_VALUE;
+            double chordSum = 0d;
+            for (int i = 0; i < n; i++) {
+                if (timestamps[i] >= from && timestamps[i] <= to) {
+                    count++;
+                    sum += amounts[i];
+                    min = Math.min(min, amounts[i]);
+                    chordSum += current.chordKm(points[i]);
+                }
+            }
+            assertTrue(aggregate.count(from, to, Buckets.INSIDE) <= count);
+            assertTrue(aggregate.sumInMinorUnits(from, to, Buckets.INSIDE) <= sum);
+            assertTrue(aggregate.minAmountInMinorUnits(from, to, Buckets.INSIDE) >= min);
+            assertTrue(aggregate.chordSumLowerBoundKm(from, to, current) <= chordSum * (1 + 1e-9));
+            // superconjunto só enquanto o anel ainda tem o início da janela
+            if (aggregate.covers(from)) {
+                assertTrue(count <= aggregate.count(from, to, Buckets.TOUCHING));
+                assertTrue(sum <= aggregate.sumInMinorUnits(from, to, Buckets.TOUCHING));
+                assertTrue(min >= aggregate.minAmountInMinorUnits(from, to, Buckets.TOUCHING));
+                assertTrue(aggregate.chordSumUpperBoundKm(from, to, current) >= chordSum);
+            }
+        }
+    }
+
+    @Test
+    void testSameLocationUpperBoundIsTight() {
+        RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+        GeoPoint home = GeoPoint.of(-23.5505, -46.6333);
+        for (int i = 0; i < 1_000; i++) {
+            aggregate.add(START + i * 1_000L, 5_000L, home);
+        }
+        long to = START + 1_000 * 1_000L;
+        assertTrue(aggregate.chordSumUpperBoundKm(to - WINDOW_MS, to, home) < 1.0);
+    }
+
+    @Test
+    void testNotCoveredAfterLateEvent() {
+        RollingWindowAggregate aggregate = RollingWindowAggregate.of(AbstractWindowProcessor.WINDOW_SIZE);
+        aggregate.add(START, 100L, null);
+        aggregate.add(START + 3 * WINDOW_MS, 100L, null);
+        assertFalse(aggregate.covers(START));
+        assertTrue(aggregate.covers(START + 2 * WINDOW_MS + 60_000L));
+        assertEquals(1, aggregate.countWithoutGeolocation(START + 2 * WINDOW_MS + 60_000L, START + 3 * WINDOW_MS, Buckets.TOUCHING));
+    }
+}
@@ -0,0 +1,61 @@
+package szp.rafael.cct.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Laços de {@link GeoUtils#distancesKm} e {@link GeoUtils#chordsKm} com a Vector API.
+ *
+ * Fica em src/vector/java e só é compilada com o profile {@code vector}, o único que passa
+ * {@code --add-modules jdk.incubator.vector} ao javac. {@link GeoUtils} carrega a classe por reflexão quando ela
+ * existe e o módulo está presente (ver {@link GeoUtils#isVectorApiEnabled()}); o resto que não completa um vetor
+ * cai no cálculo escalar.
+ */
+final class GeoVectorKernels implements GeoBatchKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180.0d;
+
+    GeoVectorKernels() {
+    }
+
+    @Override
+    public void distancesKm(double[] latitudes, double[] longitudes, int length,
+                            double latitude, double longitude, double[] out) {
+        double lat0 = Math.toRadians(latitude);
+        double lon0 = Math.toRadians(longitude);
+        double cosLat0 = Math.cos(lat0);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector lat = DoubleVector.fromArray(SPECIES, latitudes, i).mul(RADIANS_PER_DEGREE);
+            DoubleVector lon = DoubleVector.fromArray(SPECIES, longitudes, i).mul(RADIANS_PER_DEGREE);
+            DoubleVector sinLat = lat.sub(lat0).mul(0.5d).lanewise(VectorOperators.SIN);
+            DoubleVector sinLon = lon.sub(lon0).mul(0.5d).lanewise(VectorOperators.SIN);
+            DoubleVector a = sinLat.mul(sinLat)
+                    .add(lat.lanewise(VectorOperators.COS).mul(cosLat0).mul(sinLon).mul(sinLon));
+            DoubleVector c = a.sqrt().lanewise(VectorOperators.ATAN2, a.neg().add(1.0d).sqrt()).mul(2.0d);
+            c.mul(GeoUtils.RAIO_TERRA_KM).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = GeoUtils.calcularDistancia(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+    }
+
+    @Override
+    public void chordsKm(double[] xs, double[] ys, double[] zs, int from, int length,
+                         double x, double y, double z, double[] out, int outOffset) {
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, from + i).sub(x);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, from + i).sub(y);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, zs, from + i).sub(z);
+            dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).sqrt().mul(GeoUtils.RAIO_TERRA_KM).intoArray(out, outOffset + i);
+        }
+        for (; i < length; i++) {
+            out[outOffset + i] = GeoUtils.chordKm(xs[from + i], ys[from + i], zs[from + i], x, y, z);
+        }
+    }
+}